@@ -0,0 +1,10 @@
+package cn.we.tablayout;
+
+/**
+ * Created to : 结合ViewPager2的时候提供每一页的标题，Adapter的数据变化时按位置重新获取。
+ */
+public interface ITabTitleProvider {
+
+    String getTitle(int position);
+
+}
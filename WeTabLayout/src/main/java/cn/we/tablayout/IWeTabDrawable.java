@@ -5,6 +5,7 @@ import android.graphics.drawable.Drawable;
 
 /**
  * Created to :Tab设置上下左右设置小icon。
+ * 通过{@link WeTabLayout#setTabDrawable(int, IWeTabDrawable)}按位置设置，或者{@link WeTabLayout.Tab#setIcon(IWeTabDrawable)}设置到Tab上。
  *
  * @author cc.wang
  * @date 2020/5/11
@@ -12,18 +13,26 @@ import android.graphics.drawable.Drawable;
 public interface IWeTabDrawable {
 
     /**
-     * 通过gravity返回符合该位置处的Drawable对象。
+     * 获取选中或者默认状态下的图标，两种状态返回同一个Drawable的话切换Tab时不会重新设置图标。
+     *
+     * @param selected
+     * @return 没有图标返回null。
+     */
+    Drawable getDrawable(boolean selected);
+
+    /**
+     * 图标在文本的哪个方向，{@link android.view.Gravity#LEFT}、{@link android.view.Gravity#TOP}、
+     * {@link android.view.Gravity#RIGHT}、{@link android.view.Gravity#BOTTOM}。
      *
-     * @param gravity
      * @return
      */
-    Drawable getDrawableByGravity(int gravity) ;
+    int getGravity();
 
     /**
-     * 获取目标Tab的名字。
+     * 图标跟文本的间距。
      *
      * @return
      */
-    String getTargetTabName();
+    int getDrawablePadding();
 
 }
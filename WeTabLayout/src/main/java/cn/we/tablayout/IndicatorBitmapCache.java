@@ -0,0 +1,72 @@
+package cn.we.tablayout;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+/**
+ * Created to : 图片下划线的解码缓存。按下划线实际要显示的大小计算inSampleSize降采样解码，
+ * 解码好的图片放到所有WeTabLayout共享的LRU缓存里，key是资源id、目标大小，以及会影响资源选择的屏幕密度和uiMode（夜间模式），
+ * 配置变化之后不会拿到另一套资源解码出来的图片。
+ */
+final class IndicatorBitmapCache {
+
+    /**
+     * 缓存的上限，按字节算，占可用内存的1/32。
+     */
+    private static final int MAX_SIZE = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 32);
+
+    private static final LruCache<String, Bitmap> sCache = new LruCache<String, Bitmap>(MAX_SIZE) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
+    private IndicatorBitmapCache() {
+    }
+
+    /**
+     * 获取降采样后的图片，缓存里有的话直接返回。可以在后台线程调用。
+     *
+     * @param resources
+     * @param resId
+     * @param reqWidth  下划线的宽度，0表示不知道，只按高度降采样。
+     * @param reqHeight 下划线的高度，0表示不知道，只按宽度降采样。
+     * @return 解码失败返回null。
+     */
+    static Bitmap get(Resources resources, int resId, int reqWidth, int reqHeight) {
+        String key = resId + ":" + reqWidth + "x" + reqHeight
+                + ":" + resources.getDisplayMetrics().densityDpi + ":" + resources.getConfiguration().uiMode;
+        Bitmap bitmap = sCache.get(key);
+        if (null != bitmap) {
+            return bitmap;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+        options.inJustDecodeBounds = false;
+        bitmap = BitmapFactory.decodeResource(resources, resId, options);
+        if (null != bitmap) {
+            sCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 取最大的2的幂，保证解码出来的宽高都不小于要显示的宽高。
+     */
+    private static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        if (reqWidth <= 0 && reqHeight <= 0) {
+            return 1;
+        }
+        int inSampleSize = 1;
+        while ((reqHeight <= 0 || height / (inSampleSize * 2) >= reqHeight)
+                && (reqWidth <= 0 || width / (inSampleSize * 2) >= reqWidth)) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+}
@@ -0,0 +1,60 @@
+package cn.we.tablayout;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+/**
+ * Created to : 单独绘制下划线的View，放在WeTabLayout的Overlay里。
+ * 移动的时候只修改平移和横向缩放，WeTabLayout不用重绘；开了硬件加速的话这些属性变化也不用重新录制下划线本身。
+ * 只在滑动中（宽度跟布局时不一样）才用缩放，停下来的时候按真实宽度重新布局，圆角不会变形。
+ */
+final class IndicatorView extends View {
+
+    private Drawable mDrawable;
+
+    IndicatorView(Context context) {
+        super(context);
+        setPivotX(0);
+        setPivotY(0);
+    }
+
+    /**
+     * 换了下划线的Drawable，或者Drawable的内容（颜色、圆角、图片）变了，重绘一次。
+     */
+    void setDrawable(Drawable drawable) {
+        mDrawable = drawable;
+        invalidate();
+    }
+
+    /**
+     * @param rect    下划线这一帧的位置，跟WeTabLayout的onDraw使用同一个坐标系。
+     * @param settled 是否已经停在某个Tab上，停下来的时候宽度不一样就重新布局。
+     */
+    void update(Rect rect, boolean settled) {
+        int width = rect.width();
+        int height = rect.height();
+        if (width <= 0 || height <= 0) {
+            setVisibility(INVISIBLE);
+            return;
+        }
+        setVisibility(VISIBLE);
+        if (getWidth() <= 0 || height != getHeight() || (settled && width != getWidth())) {
+            layout(0, 0, width, height);
+        }
+        setScaleX(width / (float) getWidth());
+        setTranslationX(rect.left);
+        setTranslationY(rect.top);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (null == mDrawable) {
+            return;
+        }
+        mDrawable.setBounds(0, 0, getWidth(), getHeight());
+        mDrawable.draw(canvas);
+    }
+}
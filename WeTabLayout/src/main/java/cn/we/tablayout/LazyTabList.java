@@ -0,0 +1,94 @@
+package cn.we.tablayout;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+
+/**
+ * Created to : {@link TabAdapter}模式下的Tab列表，每个位置只占一个空槽，
+ * 第一次{@link #get(int)}的时候才向Adapter要标题并创建Tab。
+ */
+final class LazyTabList extends AbstractList<WeTabLayout.Tab> {
+
+    private final WeTabLayout mTabLayout;
+    private final TabAdapter mAdapter;
+    private final ArrayList<WeTabLayout.Tab> mSlots = new ArrayList<>();
+
+    LazyTabList(WeTabLayout tabLayout, TabAdapter adapter) {
+        this.mTabLayout = tabLayout;
+        this.mAdapter = adapter;
+        reset();
+    }
+
+    /**
+     * 丢掉所有已经创建的Tab，按Adapter当前的数量重新占位。
+     */
+    void reset() {
+        mSlots.clear();
+        int count = mAdapter.getCount();
+        mSlots.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            mSlots.add(null);
+        }
+        modCount++;
+    }
+
+    boolean isMaterialized(int index) {
+        return null != mSlots.get(index);
+    }
+
+    /**
+     * 获取已经创建的Tab，还没有创建的话返回null，不会去创建。
+     *
+     * @param index
+     * @return
+     */
+    WeTabLayout.Tab peek(int index) {
+        return mSlots.get(index);
+    }
+
+    @Override
+    public WeTabLayout.Tab get(int index) {
+        WeTabLayout.Tab tab = mSlots.get(index);
+        if (null == tab) {
+            tab = mTabLayout.newTab();
+            tab.setText(mAdapter.getTitle(index));
+            tab.setPosition(index);
+            mSlots.set(index, tab);
+        }
+        return tab;
+    }
+
+    @Override
+    public int size() {
+        return mSlots.size();
+    }
+
+    @Override
+    public WeTabLayout.Tab set(int index, WeTabLayout.Tab tab) {
+        return mSlots.set(index, tab);
+    }
+
+    /**
+     * tab可以为null，表示只占位，用到的时候再创建。
+     */
+    @Override
+    public void add(int index, WeTabLayout.Tab tab) {
+        mSlots.add(index, tab);
+        modCount++;
+    }
+
+    /**
+     * 还没有创建过的Tab返回null。
+     */
+    @Override
+    public WeTabLayout.Tab remove(int index) {
+        modCount++;
+        return mSlots.remove(index);
+    }
+
+    @Override
+    public void clear() {
+        mSlots.clear();
+        modCount++;
+    }
+}
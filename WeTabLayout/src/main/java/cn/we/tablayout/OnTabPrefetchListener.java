@@ -0,0 +1,14 @@
+package cn.we.tablayout;
+
+/**
+ * Created to : 某个Tab即将被选中时的回调，可以提前加载那一页的数据。
+ * 滑动ViewPager超过阈值（{@link WeTabLayout#setTabPrefetchThreshold(float)}）或者手指按下某个Tab的时候回调，
+ * 同一次滑动里同一个Tab只回调一次。
+ */
+public interface OnTabPrefetchListener {
+
+    /**
+     * @param position 即将被选中的Tab的位置。传位置而不是Tab，Adapter模式下不会因为预加载而创建Tab。
+     */
+    void onTabPrefetch(int position);
+}
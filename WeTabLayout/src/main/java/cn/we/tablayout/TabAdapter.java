@@ -0,0 +1,55 @@
+package cn.we.tablayout;
+
+import android.view.View;
+
+/**
+ * Created to : 按需提供Tab的数据，标题只在Tab需要的时候才通过{@link #getTitle(int)}获取。
+ * 配合虚拟化模式使用时，Tab对象和TabView只会在滑到可见窗口附近时才创建；
+ * 不是虚拟化模式的话所有的TabView还是会一次创建出来。
+ * 数据变化后调用notify系列方法，只更新对应范围的Tab。
+ */
+public abstract class TabAdapter {
+
+    private WeTabLayout mTabLayout;
+
+    public abstract int getCount();
+
+    public abstract CharSequence getTitle(int position);
+
+    /**
+     * TabView绑定好数据并且添加到布局之后回调，可以另外对TabView做一些操作。
+     *
+     * @param view     Tab的文本View。
+     * @param position
+     */
+    public void bindTab(View view, int position) {
+    }
+
+    public final void notifyDataSetChanged() {
+        if (null != mTabLayout) {
+            mTabLayout.onTabAdapterChanged();
+        }
+    }
+
+    public final void notifyItemRangeChanged(int positionStart, int itemCount) {
+        if (null != mTabLayout) {
+            mTabLayout.onTabAdapterRangeChanged(positionStart, itemCount);
+        }
+    }
+
+    public final void notifyItemRangeInserted(int positionStart, int itemCount) {
+        if (null != mTabLayout) {
+            mTabLayout.onTabAdapterRangeInserted(positionStart, itemCount);
+        }
+    }
+
+    public final void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        if (null != mTabLayout) {
+            mTabLayout.onTabAdapterRangeRemoved(positionStart, itemCount);
+        }
+    }
+
+    void attach(WeTabLayout tabLayout) {
+        this.mTabLayout = tabLayout;
+    }
+}
@@ -0,0 +1,193 @@
+package cn.we.tablayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created to : 比较新旧两组Tab标题的差异，思路跟DiffUtil一样：先用Myers算法找出位置不变的Tab，
+ * 再把标题相同的删除和新增配对成移动，剩下的删除和新增配对成文本更新，这样尽量复用已有的TabView。
+ */
+final class TabDiff {
+
+    static final int NO_POSITION = -1;
+
+    /**
+     * 新列表第j个Tab对应旧列表的位置，{@link #NO_POSITION}表示新增。
+     */
+    final int[] newToOld;
+
+    /**
+     * 旧列表第i个Tab对应新列表的位置，{@link #NO_POSITION}表示删除。
+     */
+    final int[] oldToNew;
+
+    /**
+     * 新列表第j个Tab在TabView中的相对顺序是否没变，false的话表示是移动或者更新过来的。
+     */
+    final boolean[] stable;
+
+    /**
+     * 第一个发生变化的位置，之前的Tab不需要任何处理。
+     */
+    final int firstChanged;
+
+    private TabDiff(int oldSize, int newSize, int firstChanged) {
+        this.newToOld = new int[newSize];
+        this.oldToNew = new int[oldSize];
+        this.stable = new boolean[newSize];
+        this.firstChanged = firstChanged;
+        for (int i = 0; i < newSize; i++) {
+            newToOld[i] = NO_POSITION;
+        }
+        for (int i = 0; i < oldSize; i++) {
+            oldToNew[i] = NO_POSITION;
+        }
+    }
+
+    static TabDiff calculate(List<? extends CharSequence> oldTitles, List<? extends CharSequence> newTitles) {
+        int oldSize = oldTitles.size();
+        int newSize = newTitles.size();
+        //相同的前缀和后缀不参与Myers算法，服务端推送的列表一般只改动中间的一小段。
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && same(oldTitles.get(prefix), newTitles.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && same(oldTitles.get(oldSize - 1 - suffix), newTitles.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+        TabDiff diff = new TabDiff(oldSize, newSize, prefix);
+        for (int i = 0; i < prefix; i++) {
+            diff.match(i, i, true);
+        }
+        for (int i = 0; i < suffix; i++) {
+            diff.match(oldSize - 1 - i, newSize - 1 - i, true);
+        }
+        diff.myers(oldTitles, newTitles, prefix, oldSize - suffix, prefix, newSize - suffix);
+        diff.pairMovesAndUpdates(oldTitles, newTitles, prefix, oldSize - suffix, prefix, newSize - suffix);
+        return diff;
+    }
+
+    /**
+     * Myers差分算法，找出[oldStart, oldEnd)和[newStart, newEnd)之间的最长公共子序列。
+     */
+    private void myers(List<? extends CharSequence> a, List<? extends CharSequence> b,
+                       int oldStart, int oldEnd, int newStart, int newEnd) {
+        int n = oldEnd - oldStart;
+        int m = newEnd - newStart;
+        if (n <= 0 || m <= 0) {
+            return;
+        }
+        int max = n + m;
+        int[] v = new int[2 * max + 2];
+        List<int[]> trace = new ArrayList<>();
+        int x = 0;
+        int y = 0;
+        outer:
+        for (int d = 0; d <= max; d++) {
+            trace.add(v.clone());
+            for (int k = -d; k <= d; k += 2) {
+                if (k == -d || (k != d && v[max + k - 1] < v[max + k + 1])) {
+                    x = v[max + k + 1];
+                } else {
+                    x = v[max + k - 1] + 1;
+                }
+                y = x - k;
+                while (x < n && y < m && same(a.get(oldStart + x), b.get(newStart + y))) {
+                    x++;
+                    y++;
+                }
+                v[max + k] = x;
+                if (x >= n && y >= m) {
+                    break outer;
+                }
+            }
+        }
+        //回溯，只需要记录对角线上的匹配。
+        x = n;
+        y = m;
+        for (int d = trace.size() - 1; d > 0; d--) {
+            int[] pv = trace.get(d);
+            int k = x - y;
+            int prevK;
+            if (k == -d || (k != d && pv[max + k - 1] < pv[max + k + 1])) {
+                prevK = k + 1;
+            } else {
+                prevK = k - 1;
+            }
+            int prevX = pv[max + prevK];
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                x--;
+                y--;
+                match(oldStart + x, newStart + y, true);
+            }
+            x = prevX;
+            y = prevY;
+        }
+        while (x > 0 && y > 0) {
+            x--;
+            y--;
+            match(oldStart + x, newStart + y, true);
+        }
+    }
+
+    /**
+     * 标题相同的删除和新增当作移动；剩下的按顺序配对当作文本更新，复用原来的TabView。
+     */
+    private void pairMovesAndUpdates(List<? extends CharSequence> a, List<? extends CharSequence> b,
+                                     int oldStart, int oldEnd, int newStart, int newEnd) {
+        for (int j = newStart; j < newEnd; j++) {
+            if (newToOld[j] != NO_POSITION) {
+                continue;
+            }
+            for (int i = oldStart; i < oldEnd; i++) {
+                if (oldToNew[i] == NO_POSITION && same(a.get(i), b.get(j))) {
+                    match(i, j, false);
+                    break;
+                }
+            }
+        }
+        int i = oldStart;
+        for (int j = newStart; j < newEnd; j++) {
+            if (newToOld[j] != NO_POSITION) {
+                continue;
+            }
+            while (i < oldEnd && oldToNew[i] != NO_POSITION) {
+                i++;
+            }
+            if (i >= oldEnd) {
+                break;
+            }
+            match(i, j, false);
+        }
+    }
+
+    private void match(int oldPosition, int newPosition, boolean isStable) {
+        oldToNew[oldPosition] = newPosition;
+        newToOld[newPosition] = oldPosition;
+        stable[newPosition] = isStable;
+    }
+
+    /**
+     * 跟TextUtils.equals一样按字符比较，不依赖Android的类，可以直接在JVM上测试。
+     */
+    private static boolean same(CharSequence a, CharSequence b) {
+        if (a == b) {
+            return true;
+        }
+        if (null == a || null == b || a.length() != b.length()) {
+            return false;
+        }
+        if (a instanceof String && b instanceof String) {
+            return a.equals(b);
+        }
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
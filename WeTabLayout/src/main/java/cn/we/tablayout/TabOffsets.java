@@ -0,0 +1,174 @@
+package cn.we.tablayout;
+
+/**
+ * Created to : 记录每个Tab的宽度以及宽度的前缀和，不需要真实的TabView也能知道每个Tab的位置。
+ * 宽度变化的时候只标记从哪个位置开始失效，用到的时候再补算前缀和。
+ */
+final class TabOffsets {
+
+    private int[] mWidths = new int[0];
+
+    /**
+     * mOffsets[i]是第i个Tab的左边界，mOffsets[count]是所有Tab的总宽度。
+     */
+    private int[] mOffsets = new int[1];
+
+    private int mCount = 0;
+
+    /**
+     * 从该位置开始的前缀和需要重新计算。
+     */
+    private int mDirtyFrom = 0;
+
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * 重新设置Tab的数量，新增的Tab宽度为0。
+     *
+     * @param count
+     */
+    void setCount(int count) {
+        ensureCapacity(count);
+        for (int i = mCount; i < count; i++) {
+            mWidths[i] = 0;
+        }
+        markDirty(Math.min(mCount, count));
+        mCount = count;
+    }
+
+    int getWidth(int index) {
+        return mWidths[index];
+    }
+
+    void setWidth(int index, int width) {
+        if (mWidths[index] == width) {
+            return;
+        }
+        mWidths[index] = width;
+        markDirty(index + 1);
+    }
+
+    /**
+     * 在index处插入一个Tab。
+     *
+     * @param index
+     * @param width
+     */
+    void insert(int index, int width) {
+        ensureCapacity(mCount + 1);
+        System.arraycopy(mWidths, index, mWidths, index + 1, mCount - index);
+        mWidths[index] = width;
+        mCount++;
+        markDirty(index);
+    }
+
+    /**
+     * 删除第index个Tab。
+     *
+     * @param index
+     */
+    void remove(int index) {
+        System.arraycopy(mWidths, index + 1, mWidths, index, mCount - index - 1);
+        mCount--;
+        markDirty(index);
+    }
+
+    /**
+     * 把第from个Tab移动到to的位置。
+     *
+     * @param from
+     * @param to
+     */
+    void move(int from, int to) {
+        int width = mWidths[from];
+        if (from < to) {
+            System.arraycopy(mWidths, from + 1, mWidths, from, to - from);
+        } else {
+            System.arraycopy(mWidths, to, mWidths, to + 1, from - to);
+        }
+        mWidths[to] = width;
+        markDirty(Math.min(from, to));
+    }
+
+    /**
+     * 第index个Tab的左边界。
+     *
+     * @param index
+     * @return
+     */
+    int getStart(int index) {
+        ensureOffsets(index);
+        return mOffsets[index];
+    }
+
+    /**
+     * 第index个Tab的右边界。
+     *
+     * @param index
+     * @return
+     */
+    int getEnd(int index) {
+        ensureOffsets(index + 1);
+        return mOffsets[index + 1];
+    }
+
+    int getTotalWidth() {
+        return getEnd(mCount - 1);
+    }
+
+    /**
+     * 二分查找x所在的Tab，x超出范围的时候返回第一个或者最后一个Tab，没有Tab的时候返回-1。
+     *
+     * @param x 相对于第一个Tab左边界的距离。
+     * @return
+     */
+    int indexAt(int x) {
+        if (mCount <= 0) {
+            return -1;
+        }
+        ensureOffsets(mCount);
+        int low = 0;
+        int high = mCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mOffsets[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void ensureOffsets(int index) {
+        if (index < mDirtyFrom) {
+            return;
+        }
+        int from = Math.max(mDirtyFrom, 1);
+        for (int i = from; i <= mCount; i++) {
+            mOffsets[i] = mOffsets[i - 1] + mWidths[i - 1];
+        }
+        mDirtyFrom = mCount + 1;
+    }
+
+    private void markDirty(int index) {
+        if (index < mDirtyFrom) {
+            mDirtyFrom = index;
+        }
+    }
+
+    private void ensureCapacity(int count) {
+        if (mWidths.length >= count) {
+            return;
+        }
+        int capacity = Math.max(count, mWidths.length * 2);
+        int[] widths = new int[capacity];
+        System.arraycopy(mWidths, 0, widths, 0, mCount);
+        mWidths = widths;
+        int[] offsets = new int[capacity + 1];
+        System.arraycopy(mOffsets, 0, offsets, 0, mOffsets.length);
+        mOffsets = offsets;
+    }
+}
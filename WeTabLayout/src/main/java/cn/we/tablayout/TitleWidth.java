@@ -0,0 +1,47 @@
+package cn.we.tablayout;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.TextUtils;
+
+/**
+ * Created to : 缓存Tab标题测量出来的宽度。标题、字号、字体和是否加粗都没变的话直接返回缓存的宽度，
+ * 任意一个变了才会用Paint重新测量。
+ */
+final class TitleWidth {
+
+    private CharSequence mText;
+    private float mTextSize;
+    private Typeface mTypeface;
+    private boolean mBold;
+    private boolean mMeasured = false;
+    private float mWidth;
+
+    /**
+     * 获取标题的宽度，条件跟上一次一样的话不再测量。
+     *
+     * @param paint    用来测量的Paint，会被修改字号、字体和加粗。
+     * @param text
+     * @param textSize
+     * @param typeface
+     * @param bold
+     * @return
+     */
+    float measure(Paint paint, CharSequence text, float textSize, Typeface typeface, boolean bold) {
+        if (mMeasured && mTextSize == textSize && mTypeface == typeface && mBold == bold
+                && TextUtils.equals(mText, text)) {
+            return mWidth;
+        }
+        paint.setTextSize(textSize);
+        paint.setTypeface(typeface);
+        paint.setFakeBoldText(bold);
+        int length = null == text ? 0 : text.length();
+        mWidth = length > 0 ? paint.measureText(text, 0, length) : 0;
+        mText = text;
+        mTextSize = textSize;
+        mTypeface = typeface;
+        mBold = bold;
+        mMeasured = true;
+        return mWidth;
+    }
+}
@@ -9,9 +9,13 @@ import android.view.Gravity;
  * @author cc.wang
  * @date 2020/5/11
  */
-public class WeTabDrawable {
+public class WeTabDrawable implements IWeTabDrawable {
 
     private Drawable drawable;
+    /**
+     * 选中时的图标，null的话选中和默认都用{@link #drawable}。
+     */
+    private Drawable selectedDrawable;
     private int gravity = Gravity.RIGHT;
     private int drawablePadding = 0;
     private String tabName;
@@ -21,6 +25,19 @@ public class WeTabDrawable {
         this.tabName = tabName;
     }
 
+    /**
+     * 选中和默认状态用不同的图标。
+     *
+     * @param drawable         默认状态的图标。
+     * @param selectedDrawable 选中时的图标，null的话选中和默认都用drawable。
+     * @return
+     */
+    public static WeTabDrawable withSelected(Drawable drawable, Drawable selectedDrawable) {
+        WeTabDrawable tabDrawable = new WeTabDrawable(drawable, null);
+        tabDrawable.setSelectedDrawable(selectedDrawable);
+        return tabDrawable;
+    }
+
     public String getTabName() {
         return tabName;
     }
@@ -50,6 +67,23 @@ public class WeTabDrawable {
         this.drawable = drawable;
     }
 
+    @Override
+    public Drawable getDrawable(boolean selected) {
+        if (selected && null != selectedDrawable) {
+            return selectedDrawable;
+        }
+        return drawable;
+    }
+
+    public Drawable getSelectedDrawable() {
+        return selectedDrawable;
+    }
+
+    public void setSelectedDrawable(Drawable selectedDrawable) {
+        this.selectedDrawable = selectedDrawable;
+    }
+
+    @Override
     public int getGravity() {
         return gravity;
     }
@@ -58,6 +92,7 @@ public class WeTabDrawable {
         this.gravity = gravity;
     }
 
+    @Override
     public int getDrawablePadding() {
         return drawablePadding;
     }
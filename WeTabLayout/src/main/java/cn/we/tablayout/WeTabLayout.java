@@ -1,39 +1,65 @@
 package cn.we.tablayout;
 
+import android.animation.TimeInterpolator;
+import android.animation.ValueAnimator;
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.content.res.Configuration;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
+import android.graphics.Typeface;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.TextPaint;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.animation.AnimationUtils;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.HorizontalScrollView;
 import android.widget.LinearLayout;
+import android.widget.Space;
 import android.widget.TextView;
 
 import androidx.annotation.DrawableRes;
 import androidx.annotation.IdRes;
 import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewpager.widget.ViewPager;
+import androidx.viewpager2.widget.ViewPager2;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Created to : 一款自定义下划线的仿TabLayout。
@@ -43,6 +69,17 @@ import java.util.Map;
  */
 public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPageChangeListener {
 
+    /**
+     * 标题超出最大宽度时末尾省略。
+     */
+    public static final int TITLE_OVERFLOW_ELLIPSIZE = 0;
+    /**
+     * 标题超出最大宽度时先缩小字号，缩到{@link #MIN_TITLE_SHRINK_SCALE}还放不下再末尾省略。
+     */
+    public static final int TITLE_OVERFLOW_SHRINK = 1;
+
+    private static final float MIN_TITLE_SHRINK_SCALE = 0.7f;
+
     public WeTabLayout(Context context) {
         this(context, null, 0);
     }
@@ -56,6 +93,19 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         initView(context, attrs);
     }
 
+    /**
+     * 代码里创建时直接使用共享的样式，不再解析属性。
+     *
+     * @param context
+     * @param style
+     */
+    public WeTabLayout(Context context, @NonNull WeTabStyle style) {
+        super(context);
+        mTabStyle = style;
+        applyStyleValues(style);
+        inflateOther(context);
+    }
+
     private Context mContext;
 
     /**
@@ -73,6 +123,74 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
      */
     private ViewPager mViewPager;
 
+    /**
+     * ViewPager2，跟{@link #mViewPager}只会有一个不为null。
+     */
+    private ViewPager2 mViewPager2;
+    private RecyclerView.Adapter<?> mPager2Adapter;
+    private ITabTitleProvider mTitleProvider;
+
+    private final ViewPager2.OnPageChangeCallback mPageChangeCallback = new ViewPager2.OnPageChangeCallback() {
+        @Override
+        public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+            WeTabLayout.this.onPageScrolled(position, positionOffset, positionOffsetPixels);
+        }
+
+        @Override
+        public void onPageSelected(int position) {
+            WeTabLayout.this.onPageSelected(position);
+        }
+
+        @Override
+        public void onPageScrollStateChanged(int state) {
+            WeTabLayout.this.onPageScrollStateChanged(state);
+        }
+    };
+
+    /**
+     * ViewPager2的Adapter数据变化的时候，只增删改对应位置的Tab。
+     */
+    private final RecyclerView.AdapterDataObserver mPager2DataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            submitTitles(getPager2Titles());
+            //差分按标题保留了选中的Tab，但ViewPager2会停在原来的位置，以它为准。
+            if (null != mViewPager2) {
+                syncSelectionWithPager(mViewPager2.getCurrentItem());
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                updateTab(i, mTitleProvider.getTitle(i));
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                addTab(newTab().setText(mTitleProvider.getTitle(i)), i, false);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            for (int i = positionStart + itemCount - 1; i >= positionStart; i--) {
+                removeTabAt(i);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (itemCount == 1) {
+                moveTab(fromPosition, toPosition);
+            } else {
+                onChanged();
+            }
+        }
+    };
+
     /**
      * TabView的父布局。是个LinearLayout。
      */
@@ -91,6 +209,49 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
     private boolean mSelectedTabTextStyleBold = false;
     private boolean mTabFillContainer = true;
 
+    /**
+     * Tab的最大宽度，0表示不限制；标题放不下时按{@link #mTabTitleOverflow}处理。
+     */
+    private float mTabMaxWidth = 0;
+    private int mTabTitleOverflow = TITLE_OVERFLOW_ELLIPSIZE;
+
+    /**
+     * 充满父布局时每个Tab内容的宽度，测量时复用。
+     */
+    private int[] mFillTabWidths = new int[0];
+
+    /**
+     * 选中文字的放大用缩放实现：TabView统一按较大的字号布局，选中和默认的区别只是绘制时的缩放，
+     * 滑动的时候缩放跟着{@link #mPositionOffset}渐变，不会触发重新布局。
+     */
+    private boolean mSelectedTextScale = false;
+
+    /**
+     * 当前正在做缩放渐变的两个Tab中的第一个。
+     */
+    private int mScaledTabPair = -1;
+
+    /**
+     * 自绘文本模式：不创建TabView，Tab的文本和图标直接在{@link #onDraw(Canvas)}里用{@link #mTextPaint}绘制，
+     * 点击通过{@link #onTouchEvent(MotionEvent)}做命中测试，无障碍服务通过{@link DrawnTabAccessibilityHelper}访问每个Tab。只支持文本Tab。
+     */
+    private boolean mTabTextDrawn = false;
+
+    /**
+     * 自绘文本模式下第一个Tab的左边界，以及Tab充满父布局时每个Tab多分到的宽度。
+     */
+    private int mDrawnTabOrigin = 0;
+    private int mDrawnTabExtra = 0;
+
+    private int mTouchSlop;
+    private float mDrawnTouchX;
+    private boolean mDrawnTouchTap = false;
+
+    /**
+     * 自绘文本模式下没有TabView，无障碍服务通过它把每个Tab当成一个虚拟的View。
+     */
+    private DrawnTabAccessibilityHelper mDrawnTabAccessibilityHelper;
+
     /**
      * 下划线相关的配置。
      */
@@ -98,21 +259,101 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
     private float mIndicatorHeight;
     private float mIndicatorWidth;
     private boolean mIndicatorEqualTabText = false;
+
+    /**
+     * 没有ViewPager的时候，切换Tab时下划线移动的动画时长，0表示不做动画直接跳过去。
+     */
+    private int mIndicatorAnimDuration = 200;
+    private TimeInterpolator mIndicatorAnimInterpolator;
+    private ValueAnimator mIndicatorAnimator;
+
+    /**
+     * 是否用单独的{@link IndicatorView}绘制下划线，只在Android 4.3及以上（需要ViewGroupOverlay）生效。
+     */
+    private boolean mIndicatorOverlayEnabled = false;
+    private IndicatorView mIndicatorView;
+
+    /**
+     * 每次设置下划线图片都会加1，异步解码完成时不是最新的一次设置就丢弃。
+     */
+    private int mIndicatorBitmapRequest = 0;
+
+    /**
+     * 当前使用的样式，xml里的属性也会先解析成样式。
+     */
+    private WeTabStyle mTabStyle;
+
+    /**
+     * 下划线的Drawable是不是还跟其他实例共享ConstantState，修改之前要先mutate()。
+     */
+    private boolean mIndicatorDrawableShared = false;
     private float mIndicatorBottomMargin;
     private int mIndicatorColor = Color.RED;
     private float mIndicatorCorner;
     private Rect mIndicatorRect;
 
+    /**
+     * 上一次计算的下划线区域，用来判断下划线有没有移动。
+     */
+    private Rect mLastIndicatorRect;
+
     /**
      * {@link IHandleTab}TabView创建的时候，会执行该回调接口，可以另外的对TabView做一些别的操作。
      */
     private IHandleTab mHandleTab;
 
+    /**
+     * 按需提供Tab数据的Adapter，设置了的话{@link #mTabs}是{@link LazyTabList}。
+     */
+    private TabAdapter mTabAdapter;
+
+    /**
+     * Adapter模式下还没有测量过的Tab先用这个宽度占位。
+     */
+    private int mEstimatedTabWidth = 0;
+
     /**
      * 记录一下滑动的相对距离，如果跟最新的一样的话就不做操作。
      */
     private int mLastScrollX = 0;
 
+    /**
+     * 最近一次smoothScrollTo的目标和开始的时间，用来判断是不是已经在往同一个位置滚动。
+     */
+    private int mSmoothScrollTargetX = -1;
+    private long mSmoothScrollStartTime;
+
+    /**
+     * HorizontalScrollView里Scroller默认的动画时长。
+     */
+    private static final int SMOOTH_SCROLL_DURATION = 250;
+
+    /**
+     * ViewPager（或ViewPager2）当前的滑动状态，只有手指拖动的时候才逐帧跟着滚动。
+     */
+    private int mPagerScrollState = ViewPager.SCROLL_STATE_IDLE;
+
+    /**
+     * 等待居中的Tab，-1表示没有。在下一帧里算一次最终的滚动位置，用一次smoothScrollTo滚过去；
+     * 还没有布局的话在{@link #onLayout(boolean, int, int, int, int)}里直接滚过去。
+     */
+    private int mCenterTabPending = -1;
+
+    /**
+     * 恢复状态时要滚动到的位置，-1表示没有，在下一次布局的时候滚过去。
+     */
+    private int mRestoredScrollX = -1;
+
+    /**
+     * 保存状态的时候是否也保存标题，恢复时没有Tab的话直接用保存的标题创建。
+     */
+    private boolean mSaveTabTitles = false;
+
+    /**
+     * 正在{@link #onLayout(boolean, int, int, int, int)}中，这时候滚动不能直接增删虚拟化的TabView。
+     */
+    private boolean mInLayout = false;
+
     /**
      * 可以给下划线设置一个资源图片。
      */
@@ -123,6 +364,27 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
      */
     private Paint mTextPaint;
 
+    /**
+     * 每次设置Tab都会加1，异步准备好的Tab发现已经不是最新的一次设置的话就丢弃。
+     */
+    private int mSetupGeneration = 0;
+
+    /**
+     * 创建TabView时的模式（自绘、虚拟化、充满、缩放），再次setupWithViewPager时模式变了就整个重建，不再差分更新。
+     */
+    private int mBuiltTabMode = -1;
+
+    /**
+     * 后台线程的结果通过主线程的Handler切回来。不能用View.post()：Android 7.0以下View还没有attach的时候，
+     * post()放进的是当前线程的队列，在后台线程调用的话会被直接丢掉。
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 耗时统计，为null的时候不统计。
+     */
+    private WeTabMetrics mMetrics;
+
     /**
      * ViewPager滑动中的偏移量。
      */
@@ -132,6 +394,23 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
 
     private OnTabSelectedListener mTabSelectedListener;
 
+    private OnTabPrefetchListener mTabPrefetchListener;
+
+    /**
+     * 滑向相邻的Tab超过这个比例时回调预加载。
+     */
+    private float mTabPrefetchThreshold = 0.3f;
+
+    /**
+     * 这一次滑动已经预加载过的Tab，-1表示没有，ViewPager停下来的时候重置。
+     */
+    private int mPrefetchedTab = -1;
+
+    /**
+     * 这一次拖动开始时选中的Tab，按它判断滑动的方向。松手后ViewPager会先切换选中的Tab，不能用{@link #mCurrentTab}判断。
+     */
+    private int mPrefetchFromTab = -1;
+
     private float mTabPaddingLeft = 0;
     private float mTabPaddingRight = 0;
     private float mTabPaddingTop = 0;
@@ -142,6 +421,96 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
      */
     private Map<String, WeTabDrawable> mTabDrawables;
 
+    /**
+     * Tab的位置从这里开始需要重新编号，-1表示所有Tab的位置都是最新的。增删移动Tab的时候只记录最小的变化位置，
+     * 等到{@link Tab#getPosition()}的时候再统一编号。
+     */
+    private int mDirtyTabPosition = -1;
+
+    /**
+     * 下划线的几何缓存。每次{@link #onLayout(boolean, int, int, int, int)}之后按Tab的位置记录Tab的左右边界、下划线的左右边界和左右间距，
+     * 滑动的时候只需要在相邻的两个缓存之间做插值，不用每一帧都去测量TabView。
+     */
+    private int[] mTabLefts = new int[0];
+    private int[] mTabRights = new int[0];
+    private int[] mIndicatorLefts = new int[0];
+    private int[] mIndicatorRights = new int[0];
+    private int[] mIndicatorMarginLefts = new int[0];
+    private int[] mIndicatorMarginRights = new int[0];
+    private int[] mIndicatorBottoms = new int[0];
+    private int mIndicatorGeometryCount = 0;
+    private boolean mIndicatorGeometryValid = false;
+
+    /**
+     * 虚拟化模式：只有滑动窗口内（再加上前后{@link #mVirtualTabBuffer}个）的Tab才会创建真实的TabView，
+     * 其余的Tab只用{@link #mTabOffsets}记录宽度。Tab充满父布局的时候不支持该模式。
+     */
+    private boolean mTabVirtualized = false;
+    private int mVirtualTabBuffer = 2;
+    private TabOffsets mTabOffsets = new TabOffsets();
+    private int mFirstVirtualTab = 0;
+    private int mLastVirtualTab = -1;
+
+    /**
+     * 占住窗口前后没有创建TabView的Tab的宽度。
+     */
+    private View mVirtualLeadingSpace;
+    private View mVirtualTrailingSpace;
+
+    /**
+     * 回收的文本TabView，自定义布局的Tab不放到这里。
+     */
+    private List<LinearLayout> mTabViewPool = new ArrayList<>();
+
+    /**
+     * 用来测量Tab宽度的TabView，不会添加到布局中。
+     */
+    private LinearLayout mMeasureTabView;
+
+    /**
+     * 所有TabView共用一个点击监听，不用每创建一个Tab就new一个。
+     */
+    private final OnClickListener mTabClickListener = new OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            Object tag = v.getTag();
+            onTabClick(tag instanceof Tab ? ((Tab) tag).getPosition() : -1);
+        }
+    };
+
+    /**
+     * 已经给哪个下划线Drawable设置过什么颜色，没变的话绘制时不再设置，
+     * GradientDrawable每次setColor都会创建新的ColorStateList。
+     */
+    private Drawable mColoredIndicatorDrawable;
+    private int mColoredIndicatorColor;
+
+    /**
+     * 滚动和下划线的更新合并到下一帧执行，一帧里不管回调了多少次onPageScrolled都只滚动和重绘一次。
+     */
+    private boolean mScrollFramePending = false;
+
+    private final Runnable mScrollFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mScrollFramePending = false;
+            applyScrollFrame();
+        }
+    };
+
+    private final Runnable mUpdateVirtualTabsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            updateVirtualTabs();
+        }
+    };
+
+    /**
+     * 按标题给Tab添加图标，标题重复的Tab会用同一个图标。要区分的话用{@link #setTabDrawable(int, IWeTabDrawable)}。
+     *
+     * @param drawable
+     * @return
+     */
     public WeTabLayout addTabDrawable(WeTabDrawable drawable) {
         if (null == drawable) {
             return this;
@@ -153,22 +522,112 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         return this;
     }
 
+    /**
+     * 给某个位置的Tab设置图标，图标跟着Tab走，Tab移动之后图标也跟着移动。
+     *
+     * @param position
+     * @param drawable 传null去掉图标。
+     */
+    public void setTabDrawable(int position, IWeTabDrawable drawable) {
+        if (position < 0 || position >= mTabs.size()) {
+            return;
+        }
+        Tab tab = mTabs.get(position);
+        tab.setIcon(drawable);
+        boolean selected = position == mCurrentTab;
+        if (tab.targetView instanceof TextView) {
+            applyTabIcon((TextView) tab.targetView, tab, selected);
+        }
+        if (isVirtualStripAttached()) {
+            refreshVirtualTabWidth(position, selected);
+        }
+        if (isDrawnMode()) {
+            syncDrawnTabs();
+        }
+        invalidateIndicatorGeometry();
+    }
+
+    /**
+     * 用图片作为下划线，按下划线的宽高降采样解码，解码好的图片在所有WeTabLayout之间共享。
+     * 要在设置下划线宽高之后调用。
+     *
+     * @param id
+     */
     public void setIndicatorResId(@DrawableRes int id) {
+        mIndicatorBitmapRequest++;
         try {
-            Bitmap bitmap = BitmapFactory.decodeResource(getResources(), id);
-            if (null != bitmap) {
-                mIndicatorDrawable = new BitmapDrawable(getResources(), bitmap);
-            }
+            setIndicatorBitmap(IndicatorBitmapCache.get(getResources(), id, (int) mIndicatorWidth, (int) mIndicatorHeight));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * 跟{@link #setIndicatorResId(int)}一样，只是解码放到executor里做，解码完成后在主线程设置。
+     *
+     * @param id
+     * @param executor
+     */
+    public void setIndicatorResId(@DrawableRes final int id, Executor executor) {
+        final int request = ++mIndicatorBitmapRequest;
+        final Resources resources = getResources();
+        final int reqWidth = (int) mIndicatorWidth;
+        final int reqHeight = (int) mIndicatorHeight;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap;
+                try {
+                    bitmap = IndicatorBitmapCache.get(resources, id, reqWidth, reqHeight);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    return;
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        //解码期间又设置了别的下划线图片的话丢弃。
+                        if (request == mIndicatorBitmapRequest) {
+                            setIndicatorBitmap(bitmap);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void setIndicatorBitmap(Bitmap bitmap) {
+        if (null != bitmap) {
+            mIndicatorDrawable = new BitmapDrawable(getResources(), bitmap);
+            mIndicatorDrawableShared = false;
+            invalidateIndicatorView();
+            invalidate();
+        }
+    }
+
     public void setIndicatorCorner(float indicatorCorner) {
         this.mIndicatorCorner = mIndicatorCorner;
         if (mIndicatorDrawable instanceof GradientDrawable) {
+            mutateIndicatorDrawable();
             ((GradientDrawable) mIndicatorDrawable).setCornerRadius(mIndicatorCorner);
+            invalidateIndicatorView();
+        }
+    }
+
+    /**
+     * 是否把下划线放到WeTabLayout的Overlay里，用单独的{@link IndicatorView}绘制，
+     * 滑动时只修改这个View的平移和缩放，WeTabLayout本身不用重绘。开了硬件加速的话下划线也不用重新录制。
+     * 只在Android 4.3及以上生效，其他情况还是在onDraw里直接绘制。
+     * 注意Overlay在TabView上面，下划线跟TabView重叠的时候会盖住TabView。
+     *
+     * @param enabled
+     */
+    public void setIndicatorOverlayEnabled(boolean enabled) {
+        this.mIndicatorOverlayEnabled = enabled;
+        if (!enabled) {
+            removeIndicatorView();
         }
+        invalidate();
     }
 
     public void addHandleTabCallBack(@NonNull IHandleTab mHandleTab) {
@@ -179,19 +638,29 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         this.mTabSelectedListener = mTabSelectedListener;
     }
 
+    public void setOnTabPrefetchListener(OnTabPrefetchListener listener) {
+        this.mTabPrefetchListener = listener;
+    }
+
+    /**
+     * 滑向相邻的Tab超过多少比例时回调{@link OnTabPrefetchListener}，默认0.3。
+     *
+     * @param threshold 0到1之间，越小回调得越早。
+     */
+    public void setTabPrefetchThreshold(float threshold) {
+        this.mTabPrefetchThreshold = Math.max(0, Math.min(1, threshold));
+    }
+
     public void setTabContainerGravity(int mTabContainerGravity) {
         this.mTabContainerGravity = mTabContainerGravity;
     }
 
     public void setCurrentTab(int currentTab) {
         if (haveInit() && mAttachSuccess) {
-            if(mViewPager != null) {
-                mViewPager.setCurrentItem(currentTab);
-            }else {
+            if (!setPagerItem(currentTab)) {
                 selectedTab(currentTab);
                 mCurrentTab = currentTab;
-                mCurrentScrollTab = currentTab;
-                invalidate();
+                animateToTab(currentTab);
             }
         }
     }
@@ -200,6 +669,87 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         this.mTabFillContainer = fill;
     }
 
+    /**
+     * Tab的最大宽度，标题放不下的时候按{@link #setTabTitleOverflow(int)}处理。要在{@link #setupWithViewPager(ViewPager, List)}之前设置。
+     * 自绘文本模式（{@link #setTabTextDrawn(boolean)}）不支持，Tab始终按完整标题的宽度显示。
+     *
+     * @param maxWidth 单位px，0表示不限制。
+     */
+    public void setTabMaxWidth(float maxWidth) {
+        this.mTabMaxWidth = Math.max(0, maxWidth);
+    }
+
+    /**
+     * 标题超出最大宽度时的处理方式。要在{@link #setupWithViewPager(ViewPager, List)}之前设置。
+     *
+     * @param overflow {@link #TITLE_OVERFLOW_ELLIPSIZE}或者{@link #TITLE_OVERFLOW_SHRINK}。
+     */
+    public void setTabTitleOverflow(int overflow) {
+        this.mTabTitleOverflow = overflow;
+    }
+
+    /**
+     * 选中文字的大小变化是否用缩放实现。要在{@link #setupWithViewPager(ViewPager, List)}之前设置。
+     *
+     * @param scale
+     */
+    public void setSelectedTextScale(boolean scale) {
+        this.mSelectedTextScale = scale;
+    }
+
+    /**
+     * 设置耗时统计，传null关闭统计。
+     *
+     * @param metrics
+     */
+    public void setMetrics(WeTabMetrics metrics) {
+        this.mMetrics = metrics;
+    }
+
+    public WeTabMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 是否开启自绘文本模式，不创建TabView。要在{@link #setupWithViewPager(ViewPager, List)}之前设置。
+     *
+     * @param drawn
+     */
+    public void setTabTextDrawn(boolean drawn) {
+        this.mTabTextDrawn = drawn;
+    }
+
+    /**
+     * 保存状态的时候是否也保存标题。打开之后，重建时还没有调用setupWithViewPager也能按保存的标题恢复出Tab，
+     * 之后再用同样的标题setupWithViewPager只做差分更新。Adapter模式下不保存标题。
+     *
+     * @param save
+     */
+    public void setSaveTabTitles(boolean save) {
+        this.mSaveTabTitles = save;
+    }
+
+    /**
+     * 是否开启虚拟化模式，Tab数量很多的时候使用。要在{@link #setupWithViewPager(ViewPager, List)}之前设置。
+     *
+     * @param virtualized
+     */
+    public void setTabVirtualized(boolean virtualized) {
+        this.mTabVirtualized = virtualized;
+    }
+
+    /**
+     * 虚拟化模式下，可见窗口前后各多创建几个TabView。
+     *
+     * @param buffer
+     */
+    public void setVirtualTabBuffer(int buffer) {
+        this.mVirtualTabBuffer = Math.max(0, buffer);
+        if (isVirtualMode()) {
+            updateVirtualTabs();
+        }
+    }
+
     public void setIndicatorColor(int mIndicatorColor) {
         this.mIndicatorColor = mIndicatorColor;
     }
@@ -217,6 +767,7 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
             mIndicatorWidth = 0;
         }
         this.mIndicatorWidth = mIndicatorWidth;
+        invalidateIndicatorGeometry();
     }
 
     public void setSelectedTabTextColor(int mSelectedTabTextColor) {
@@ -231,44 +782,119 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         this.mIndicatorBottomMargin = margin;
     }
 
-    public void setIndicatorEqualTabText(boolean mIndicatorEqualTabText) {
-        this.mIndicatorEqualTabText = mIndicatorEqualTabText;
+    /**
+     * 没有ViewPager的时候，切换Tab时下划线移动的动画时长。
+     *
+     * @param duration 单位毫秒，0表示不做动画。
+     */
+    public void setIndicatorAnimDuration(int duration) {
+        this.mIndicatorAnimDuration = Math.max(0, duration);
     }
 
-    private void initView(Context context, AttributeSet attrs) {
-        loadAttribute(context, attrs);
-        inflateOther(context);
-    }
+    /**
+     * 没有ViewPager的时候，切换Tab时下划线移动的插值器，默认减速。
+     *
+     * @param interpolator
+     */
+    public void setIndicatorAnimInterpolator(TimeInterpolator interpolator) {
+        this.mIndicatorAnimInterpolator = interpolator;
+    }
+
+    public void setIndicatorEqualTabText(boolean mIndicatorEqualTabText) {
+        this.mIndicatorEqualTabText = mIndicatorEqualTabText;
+        invalidateIndicatorGeometry();
+    }
+
+    private void initView(Context context, AttributeSet attrs) {
+        loadAttribute(context, attrs);
+        inflateOther(context);
+    }
 
     private void loadAttribute(Context context, AttributeSet attrs) {
-        TypedArray array = null;
         try {
-            array = context.obtainStyledAttributes(attrs, R.styleable.WeTabLayout);
-            mIndicatorColor = array.getColor(R.styleable.WeTabLayout_wtl_indicator_color, Color.BLACK);
-            mIndicatorHeight = array.getDimension(R.styleable.WeTabLayout_wtl_indicator_height, 1);
-            mIndicatorWidth = array.getDimension(R.styleable.WeTabLayout_wtl_indicator_width, 0);
-            mIndicatorBottomMargin = array.getDimension(R.styleable.WeTabLayout_wtl_indicator_margin_bottom, 0);
-            mIndicatorEqualTabText = array.getBoolean(R.styleable.WeTabLayout_wtl_indicator_width_equal_title, false);
-            mIndicatorCorner = array.getDimension(R.styleable.WeTabLayout_wtl_indicator_corner_radius, 0);
-            mTabPaddingLeft = array.getDimension(R.styleable.WeTabLayout_wtl_tab_padding_left, 0);
-            mTabPaddingRight = array.getDimension(R.styleable.WeTabLayout_wtl_tab_padding_right, 0);
-            mTabPaddingTop = array.getDimension(R.styleable.WeTabLayout_wtl_tab_padding_top, 0);
-            mTabPaddingBottom = array.getDimension(R.styleable.WeTabLayout_wtl_tab_padding_bottom, 0);
-            if (mIndicatorEqualTabText) {
-                mIndicatorWidth = 0;
-            }
-            mSelectedTabTextColor = array.getColor(R.styleable.WeTabLayout_wtl_selected_text_color, Color.BLACK);
-            mDefaultTabTextColor = array.getColor(R.styleable.WeTabLayout_wtl_default_text_color, Color.GRAY);
-            mDefaultTabTextSize = array.getDimension(R.styleable.WeTabLayout_wtl_default_text_size, sp2px(12));
-            mSelectedTabTextSize = array.getDimension(R.styleable.WeTabLayout_wtl_selected_text_size, sp2px(14));
-            mSelectedTabTextStyleBold = array.getBoolean(R.styleable.WeTabLayout_wtl_selected_text_bold, false);
-            mTabFillContainer = array.getBoolean(R.styleable.WeTabLayout_wtl_tab_fill_container, false);
+            //只用style设置属性的话，同一个style只解析一次。
+            WeTabStyle style = WeTabStyle.fromCachedStyle(context, attrs);
+            mTabStyle = null != style ? style : WeTabStyle.from(context, attrs);
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (null != array) {
-                array.recycle();
-            }
+            mTabStyle = new WeTabStyle.Builder(context).build();
+        }
+        applyStyleValues(mTabStyle);
+    }
+
+    /**
+     * 设置共享的样式，会覆盖xml里设置的属性。已经有Tab的话重新创建TabView。
+     *
+     * @param style
+     */
+    public void setTabStyle(@NonNull WeTabStyle style) {
+        if (!haveInit()) {
+            return;
+        }
+        mTabStyle = style;
+        applyStyleValues(style);
+        applyIndicatorDrawable(style);
+        mEstimatedTabWidth = 0;
+        if (mAttachSuccess && !mTabs.isEmpty()) {
+            mTabContainer.removeAllViews();
+            createTabs();
+            onTabsChanged();
+        }
+        invalidateIndicatorGeometry();
+        invalidate();
+    }
+
+    public WeTabStyle getTabStyle() {
+        return mTabStyle;
+    }
+
+    private void applyStyleValues(WeTabStyle style) {
+        mIndicatorColor = style.indicatorColor;
+        mIndicatorHeight = style.indicatorHeight;
+        mIndicatorWidth = style.indicatorWidth;
+        mIndicatorBottomMargin = style.indicatorBottomMargin;
+        mIndicatorEqualTabText = style.indicatorEqualTabText;
+        mIndicatorCorner = style.indicatorCorner;
+        mIndicatorAnimDuration = style.indicatorAnimDuration;
+        mIndicatorOverlayEnabled = style.indicatorOverlayEnabled;
+        if (!mIndicatorOverlayEnabled) {
+            removeIndicatorView();
+        }
+        mTabPaddingLeft = style.tabPaddingLeft;
+        mTabPaddingRight = style.tabPaddingRight;
+        mTabPaddingTop = style.tabPaddingTop;
+        mTabPaddingBottom = style.tabPaddingBottom;
+        mSelectedTabTextColor = style.selectedTabTextColor;
+        mDefaultTabTextColor = style.defaultTabTextColor;
+        mDefaultTabTextSize = style.defaultTabTextSize;
+        mSelectedTabTextSize = style.selectedTabTextSize;
+        mSelectedTabTextStyleBold = style.selectedTabTextStyleBold;
+        mTabFillContainer = style.tabFillContainer;
+        mSelectedTextScale = style.selectedTextScale;
+        mTabTextDrawn = style.tabTextDrawn;
+        mTabVirtualized = style.tabVirtualized;
+        mVirtualTabBuffer = style.virtualTabBuffer;
+        mTabMaxWidth = style.tabMaxWidth;
+        mTabTitleOverflow = style.tabTitleOverflow;
+    }
+
+    /**
+     * 下划线用样式里共享的Drawable，要修改的时候再通过{@link #mutateIndicatorDrawable()}复制。
+     */
+    private void applyIndicatorDrawable(WeTabStyle style) {
+        mIndicatorDrawable = style.newIndicatorDrawable(getResources());
+        mIndicatorDrawableShared = true;
+        if (style.isIndicatorColorApplied()) {
+            mColoredIndicatorDrawable = mIndicatorDrawable;
+            mColoredIndicatorColor = style.indicatorColor;
+        }
+        invalidateIndicatorView();
+    }
+
+    private void mutateIndicatorDrawable() {
+        if (mIndicatorDrawableShared) {
+            mIndicatorDrawable = mIndicatorDrawable.mutate();
+            mIndicatorDrawableShared = false;
         }
     }
 
@@ -277,12 +903,11 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         mContext = context;
         mTabContainer = new LinearLayout(context);
         addView(mTabContainer);
-        mIndicatorDrawable = new GradientDrawable();
-        if (mIndicatorCorner > 0) {
-            ((GradientDrawable) mIndicatorDrawable).setCornerRadius(mIndicatorCorner);
-        }
+        applyIndicatorDrawable(mTabStyle);
         mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
         mIndicatorRect = new Rect();
+        mLastIndicatorRect = new Rect();
         mHaveInit = true;
     }
 
@@ -298,10 +923,7 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
     public void setupWithViewPager(ViewPager viewPager) {
         mTabs.clear();
         if(viewPager != null) {
-            mViewPager = viewPager;
-            viewPager.setCurrentItem(mCurrentTab);
-            viewPager.removeOnPageChangeListener(this);
-            viewPager.addOnPageChangeListener(this);
+            attachViewPager(viewPager);
         }
         mTabContainer.removeAllViews();
 //        createTabs();
@@ -329,265 +951,1841 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         if (null == titles || titles.size() <= 0) {
             return;
         }
-        mTabs.clear();
-        for (String title : titles) {
-            Tab tab = new Tab();
-            tab.parent = this;
-            tab.setText(title);
-            mTabs.add(tab);
+        mSetupGeneration++;
+        detachTabAdapter();
+        //已经有Tab并且模式没变的话只做差分更新，不再整个重建。
+        boolean rebuild = mAttachSuccess && !mTabs.isEmpty();
+        boolean incremental = rebuild && mBuiltTabMode == getTabMode();
+        if (!incremental) {
+            mTabs.clear();
+            for (String title : titles) {
+                Tab tab = new Tab();
+                tab.parent = this;
+                tab.setText(title);
+                mTabs.add(tab);
+            }
+            if (mCurrentTab >= mTabs.size()) {
+                mCurrentTab = 0;
+            }
         }
         if(viewPager != null) {
-            mViewPager = viewPager;
-            viewPager.setCurrentItem(mCurrentTab);
-            viewPager.removeOnPageChangeListener(this);
-            viewPager.addOnPageChangeListener(this);
+            //差分更新的时候以ViewPager为准，不要用旧的位置去切换ViewPager。
+            attachViewPager(viewPager, !incremental);
+        }
+        if (incremental) {
+            submitTitles(titles);
+            if (null != viewPager) {
+                syncSelectionWithPager(viewPager.getCurrentItem());
+            }
+        } else {
+            mTabContainer.removeAllViews();
+            createTabs();
+            if (rebuild) {
+                onTabsChanged();
+            }
         }
-        mTabContainer.removeAllViews();
-        createTabs();
         mAttachSuccess = true;
     }
 
-    private boolean checkInitState(ViewPager viewPager) {
-        if (!haveInit()) {
-            return false;
-        }
-//        if (null == viewPager) {
-//            return false;
-//        }
-        if (mTabs == null) {
-            mTabs = new ArrayList<>();
-        }
-        return true;
+    /**
+     * 影响TabView创建方式的开关，这些开关变了要整个重建。
+     */
+    private int getTabMode() {
+        return (mTabTextDrawn ? 1 : 0) | (mTabVirtualized ? 2 : 0)
+                | (mTabFillContainer ? 4 : 0) | (mSelectedTextScale ? 8 : 0);
     }
 
     /**
-     * 创建TabView。如果有设置Tab的布局文件，就使用布局文件，没有的话就自己创建TextView。
+     * 标题变化之后，ViewPager停留的页面可能不再是之前选中的Tab（notifyDataSetChanged之后ViewPager保持原来的位置，
+     * 也不会回调onPageSelected），按ViewPager当前的页面重新选中Tab。
+     *
+     * @param position ViewPager当前的页面。
      */
-    private void createTabs() {
-        for (int i = 0; i < mTabs.size(); i++) {
-            Tab tab = mTabs.get(i);
-            tab.setPosition(i);
-            createTab(i, tab);
+    private void syncSelectionWithPager(int position) {
+        if (position < 0 || position >= mTabs.size()) {
+            return;
+        }
+        cancelIndicatorAnimation();
+        if (position != mCurrentTab) {
+            selectedTab(position);
+            mCurrentTab = position;
+            centerTab(position);
         }
+        mCurrentScrollTab = position;
+        mPositionOffset = 0;
+        invalidateIndicatorGeometry();
+        invalidateIndicator();
     }
 
-    private void createTab(int i, Tab tab) {
-        LinearLayout tabView = new LinearLayout(getContext());
-        tabView.setGravity(mTabContainerGravity);
-        if (!TextUtils.isEmpty(tab.getText())) {
-            View childView = new TextView(mContext);
-            tabView.addView(childView);
-        } else {
-            View childView = tab.getCustomView();
-            tabView.addView(childView);
+    /**
+     * 异步结合ViewPager：标题的排版（PrecomputedText）和宽度的测量放到executor里做，
+     * 做完后在主线程一次性创建所有TabView，减少冷启动时主线程的排版耗时。
+     * 已经有Tab的时候直接走{@link #setupWithViewPager(ViewPager, List)}的差分更新。
+     *
+     * @param viewPager
+     * @param titles
+     * @param executor  后台线程池。
+     */
+    public void setupWithViewPagerAsync(final ViewPager viewPager, List<String> titles, Executor executor) {
+        if (!checkInitState(viewPager)) {
+            return;
         }
-        if (tabView.getChildCount() == 0) {
+        if (null == titles || titles.size() <= 0) {
             return;
         }
-        tab.view = tabView;
-        tab.targetView = tabView.getChildAt(0);
-        tabView.getChildAt(0).setPadding((int) mTabPaddingLeft, (int) mTabPaddingTop, (int) mTabPaddingRight, (int) mTabPaddingBottom);
-        setStyle(tabView.getChildAt(0), i);
-
-        LinearLayout.LayoutParams tabLayoutParams = getTabLayoutParams();
-        mTabContainer.setGravity(mTabContainerGravity);
-        mTabContainer.addView(tabView, i, tabLayoutParams);
-        if (null != mHandleTab) {
-            mHandleTab.addTab(tabView.getChildAt(0), i);
+        if (mAttachSuccess && !mTabs.isEmpty()) {
+            setupWithViewPager(viewPager, titles);
+            return;
         }
-        tabView.setOnClickListener(new OnClickListener() {
+        final int generation = ++mSetupGeneration;
+        final List<String> copyTitles = new ArrayList<>(titles);
+        //排版参数只能在主线程从TextView上取，后台线程只用这里取好的参数。
+        final TextView probe = new TextView(mContext);
+        probe.setTextSize(TypedValue.COMPLEX_UNIT_PX, mSelectedTextScale ? getScaleLayoutTextSize() : mDefaultTabTextSize);
+        final PrecomputedTextCompat.Params params = isDrawnMode() ? null : TextViewCompat.getTextMetricsParams(probe);
+        final Typeface typeface = isDrawnMode() ? null : probe.getTypeface();
+        final float defaultTextSize = mSelectedTextScale && !isDrawnMode() ? getScaleLayoutTextSize() : mDefaultTabTextSize;
+        final float selectedTextSize = mSelectedTextScale && !isDrawnMode() ? getScaleLayoutTextSize() : mSelectedTabTextSize;
+        final boolean selectedBold = mSelectedTabTextStyleBold;
+        final TextPaint paint = new TextPaint(mTextPaint);
+        executor.execute(new Runnable() {
             @Override
-            public void onClick(View v) {
-                int position = mTabContainer.indexOfChild(v);
-                if (position >= 0) {
-                    if(mViewPager != null) {
-                        if (mViewPager.getCurrentItem() != position) {
-                            mViewPager.setCurrentItem(position);
+            public void run() {
+                final List<Tab> tabs = new ArrayList<>(copyTitles.size());
+                for (String title : copyTitles) {
+                    Tab tab = new Tab();
+                    tab.setText(title);
+                    if (!TextUtils.isEmpty(title)) {
+                        if (null != params) {
+                            tab.precomputedText = PrecomputedTextCompat.create(title, params);
                         }
-                    }else {
-                        selectedTab(position);
-                        mCurrentTab = position;
-                        mCurrentScrollTab = position;
-                        invalidate();
+                        tab.defaultTitleWidth.measure(paint, title, defaultTextSize, typeface, false);
+                        tab.selectedTitleWidth.measure(paint, title, selectedTextSize, typeface, selectedBold);
                     }
+                    tabs.add(tab);
                 }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mSetupGeneration) {
+                            return;
+                        }
+                        attachPreparedTabs(viewPager, tabs);
+                    }
+                });
             }
         });
     }
 
-    public Tab newTab() {
-        Tab tab = new Tab();
-        tab.parent = this;
-        return tab;
-    }
-    public void addTab(@NonNull Tab tab) {
-        addTab(tab, mTabs.isEmpty());
+    /**
+     * 在主线程一次性挂上后台准备好的Tab。
+     */
+    private void attachPreparedTabs(ViewPager viewPager, List<Tab> tabs) {
+        detachTabAdapter();
+        mTabs.clear();
+        for (Tab tab : tabs) {
+            tab.parent = this;
+            mTabs.add(tab);
+        }
+        if (mCurrentTab >= mTabs.size()) {
+            mCurrentTab = 0;
+        }
+        if (viewPager != null) {
+            attachViewPager(viewPager);
+        }
+        mTabContainer.removeAllViews();
+        createTabs();
+        mAttachSuccess = true;
     }
 
-    public void addTab(Tab tab, int position) {
-        addTab(tab, position, mTabs.isEmpty());
+    private void attachViewPager(ViewPager viewPager) {
+        attachViewPager(viewPager, true);
     }
 
-    public void addTab(Tab tab, boolean setSelected) {
-        addTab(tab, mTabs.size(), setSelected);
+    /**
+     * @param followTab 是否把ViewPager切换到当前选中的Tab。
+     */
+    private void attachViewPager(ViewPager viewPager, boolean followTab) {
+        unbindViewPager2();
+        mViewPager = viewPager;
+        mPagerScrollState = ViewPager.SCROLL_STATE_IDLE;
+        if (followTab) {
+            viewPager.setCurrentItem(mCurrentTab);
+        }
+        viewPager.removeOnPageChangeListener(this);
+        viewPager.addOnPageChangeListener(this);
     }
 
     /**
-     * Add a tab to this layout. The tab will be inserted at <code>position</code>.
+     * 结合ViewPager2，ViewPager2必须设置好Adapter。之后Adapter的notifyItemInserted、notifyItemRemoved等
+     * 只会增删对应位置的Tab，不会整个重建。
      *
-     * @param tab The tab to add
-     * @param position The new position of the tab
-     * @param setSelected True if the added tab should become the selected tab.
+     * @param viewPager2
+     * @param titleProvider 提供每一页的标题。
      */
-    public void addTab(Tab tab, int position, boolean setSelected) {
-        if (tab.parent != this) {
-            throw new IllegalArgumentException("Tab belongs to a different TabLayout.");
+    public void setupWithViewPager2(ViewPager2 viewPager2, @NonNull ITabTitleProvider titleProvider) {
+        if (!checkInitState(null) || null == viewPager2) {
+            return;
         }
-        configureTab(tab, position);
-        createTab(position, tab);
+        RecyclerView.Adapter<?> adapter = viewPager2.getAdapter();
+        if (null == adapter) {
+            return;
+        }
+        unbindViewPager2();
+        detachTabAdapter();
+        if (null != mViewPager) {
+            mViewPager.removeOnPageChangeListener(this);
+            mViewPager = null;
+        }
+        mTitleProvider = titleProvider;
+        List<String> titles = getPager2Titles(adapter);
+        if (titles.isEmpty()) {
+            //没有数据的时候先清空，后面插入的数据通过mPager2DataObserver添加。
+            mSetupGeneration++;
+            mTabs.clear();
+            mTabContainer.removeAllViews();
+            mCurrentTab = 0;
+            onTabsChanged();
+            mAttachSuccess = true;
+        } else {
+            setupWithViewPager(null, titles);
+        }
+        mViewPager2 = viewPager2;
+        mPager2Adapter = adapter;
+        viewPager2.registerOnPageChangeCallback(mPageChangeCallback);
+        adapter.registerAdapterDataObserver(mPager2DataObserver);
+        viewPager2.setCurrentItem(mCurrentTab, false);
+    }
 
-        if (setSelected) {
-            selectedTab(position);
+    private void unbindViewPager2() {
+        if (null != mViewPager2) {
+            mViewPager2.unregisterOnPageChangeCallback(mPageChangeCallback);
+            mViewPager2 = null;
+            mPagerScrollState = ViewPager.SCROLL_STATE_IDLE;
+        }
+        if (null != mPager2Adapter) {
+            mPager2Adapter.unregisterAdapterDataObserver(mPager2DataObserver);
+            mPager2Adapter = null;
         }
     }
 
-    private void configureTab(@NonNull Tab tab, int position) {
-        tab.setPosition(position);
-        mTabs.add(position, tab);
+    private List<String> getPager2Titles() {
+        return getPager2Titles(mPager2Adapter);
+    }
 
-        final int count = mTabs.size();
-        for (int i = position + 1; i < count; i++) {
-            mTabs.get(i).setPosition(i);
+    private List<String> getPager2Titles(RecyclerView.Adapter<?> adapter) {
+        int count = adapter.getItemCount();
+        List<String> titles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            titles.add(mTitleProvider.getTitle(i));
         }
+        return titles;
     }
 
     /**
-     * 选中Tab时，更改Tab的文本样式。
+     * 结合ViewPager，Tab的数据由Adapter按需提供。
      *
-     * @param selectedIndex
+     * @param viewPager
+     * @param adapter
      */
-    private void selectedTab(int selectedIndex) {
-        if (null == mTabContainer || mTabContainer.getChildCount() == 0) {
+    public void setupWithViewPager(ViewPager viewPager, TabAdapter adapter) {
+        if (null != viewPager && checkInitState(viewPager)) {
+            attachViewPager(viewPager);
+        }
+        setTabAdapter(adapter);
+    }
+
+    /**
+     * 设置按需提供Tab数据的Adapter，标题和Tab对象在用到的时候才创建。
+     * 配合{@link #setTabVirtualized(boolean)}使用的话，只有可见窗口附近的Tab会被创建，其余的Tab先按预估的宽度占位。
+     *
+     * @param adapter 传null的话清空所有的Tab。
+     */
+    public void setTabAdapter(TabAdapter adapter) {
+        if (!checkInitState(null)) {
             return;
         }
-        int childCount = mTabContainer.getChildCount();
-        Tab tab = null;
-        View cView = null;
-        for (int i = 0; i < childCount; i++) {
-            LinearLayout tabView = (LinearLayout) mTabContainer.getChildAt(i);
-            View childAt = tabView.getChildAt(0);
-            if (i == selectedIndex) {
-                cView = childAt;
-                tab = mTabs.get(i);
-            }
-            TextView selected = null;
-            if (childAt instanceof TextView) {
-                selected = (TextView) childAt;
-            }
-            if (null != selected) {
-                setSelectedTabStyle(selected, i == selectedIndex);
-            }
+        mSetupGeneration++;
+        detachTabAdapter();
+        mTabs.clear();
+        mTabContainer.removeAllViews();
+        if (null != adapter) {
+            mTabAdapter = adapter;
+            adapter.attach(this);
+            mTabs = new LazyTabList(this, adapter);
         }
-        if (null != mTabSelectedListener) {
-            if (null != cView) {
-                mTabSelectedListener.onTabSelected(tab);
-            }
-            if (mCurrentTab >= 0 && mCurrentTab < mTabContainer.getChildCount()) {
-                if(selectedIndex != mCurrentTab) {
-                    LinearLayout tabView = (LinearLayout) mTabContainer.getChildAt(mCurrentTab);
-                    View childAt = tabView.getChildAt(0);
-                    if (null != childAt) {
-                        mTabSelectedListener.onPreTabSelected(mTabs.get(mCurrentTab));
-                    }
+        mEstimatedTabWidth = 0;
+        if (mCurrentTab >= mTabs.size()) {
+            mCurrentTab = 0;
+        }
+        createTabs();
+        onTabsChanged();
+        mAttachSuccess = true;
+    }
+
+    public TabAdapter getTabAdapter() {
+        return mTabAdapter;
+    }
+
+    private void detachTabAdapter() {
+        if (null == mTabAdapter) {
+            return;
+        }
+        mTabAdapter.attach(null);
+        mTabAdapter = null;
+        mTabs = new ArrayList<>();
+    }
+
+    void onTabAdapterChanged() {
+        if (!(mTabs instanceof LazyTabList)) {
+            return;
+        }
+        if (isVirtualStripAttached()) {
+            //文本TabView放回回收池，重新创建的时候还能用。
+            for (int i = mTabContainer.getChildCount() - 2; i >= 1; i--) {
+                Object tag = mTabContainer.getChildAt(i).getTag();
+                if (tag instanceof Tab) {
+                    recycleVirtualTab((Tab) tag);
                 }
             }
         }
+        ((LazyTabList) mTabs).reset();
+        if (mCurrentTab >= mTabs.size()) {
+            mCurrentTab = Math.max(0, mTabs.size() - 1);
+        }
+        mTabContainer.removeAllViews();
+        createTabs();
+        onTabsChanged();
     }
 
-    public void setSelectedTabStyle(TextView selected, boolean isSelected) {
-        selected.setTextColor(isSelected ? mSelectedTabTextColor : mDefaultTabTextColor);
-        selected.setTextSize(TypedValue.COMPLEX_UNIT_PX, isSelected ? mSelectedTabTextSize : mDefaultTabTextSize);
-        if (mSelectedTabTextStyleBold) {
-            selected.getPaint().setFakeBoldText(isSelected);
+    void onTabAdapterRangeChanged(int positionStart, int itemCount) {
+        if (!(mTabs instanceof LazyTabList)) {
+            return;
+        }
+        LazyTabList tabs = (LazyTabList) mTabs;
+        int end = Math.min(positionStart + itemCount, tabs.size());
+        for (int i = Math.max(0, positionStart); i < end; i++) {
+            //还没有创建的Tab用到的时候自然会拿到新的标题。
+            if (tabs.isMaterialized(i)) {
+                updateTab(i, mTabAdapter.getTitle(i));
+            }
         }
     }
 
-    /**
-     * 设置Tab的样式 ：
-     * 1. 选中状态： 字体大小，字体颜色，加粗。
-     * 2. 默认状态：字体大小，字体颜色，加粗。
-     *
-     * @param childView
-     * @param index
-     */
-    private void setStyle(View childView, int index) {
-        if (null == childView || null == mTabContainer) {
+    void onTabAdapterRangeInserted(int positionStart, int itemCount) {
+        if (!(mTabs instanceof LazyTabList) || itemCount <= 0) {
             return;
         }
-
-        if(childView instanceof TextView) {
-            TextView textView = ((TextView)childView);
-            CharSequence title = mTabs.get(index).getText();
-            if (null != mTabDrawables) {
-                WeTabDrawable weTabDrawable = mTabDrawables.get(title);
-                if (null != weTabDrawable) {
-                    textView.setCompoundDrawables(
-                            measureDrawable(weTabDrawable.getDrawableByGravity(Gravity.LEFT)),
-                            measureDrawable(weTabDrawable.getDrawableByGravity(Gravity.TOP)),
-                            measureDrawable(weTabDrawable.getDrawableByGravity(Gravity.RIGHT)),
-                            measureDrawable(weTabDrawable.getDrawableByGravity(Gravity.BOTTOM)));
-                }
+        if (!isVirtualStripAttached()) {
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                Tab tab = newTab();
+                tab.setText(mTabAdapter.getTitle(i));
+                addTab(tab, i, false);
             }
-            textView.setText(mTabs.get(index).getText());
-            textView.setGravity(Gravity.CENTER);
-            setSelectedTabStyle(textView, index == mCurrentTab);
+            return;
+        }
+        LazyTabList tabs = (LazyTabList) mTabs;
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            tabs.add(i, null);
+            if (tabs.size() > 1 && i <= mCurrentTab) {
+                mCurrentTab++;
+            }
+        }
+        int estimatedWidth = getEstimatedTabWidth();
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            mTabOffsets.insert(i, estimatedWidth);
         }
+        markTabPositionsDirty(positionStart);
+        rebindVirtualTabs();
+        onTabsChanged();
+    }
 
-        //如果布局有背景的时候，要清掉，不清掉的时候会遮挡住绘制的指示器。
-        clearBackground(childView);
+    void onTabAdapterRangeRemoved(int positionStart, int itemCount) {
+        if (!(mTabs instanceof LazyTabList)) {
+            return;
+        }
+        for (int i = positionStart + itemCount - 1; i >= positionStart; i--) {
+            removeTabAt(i);
+        }
     }
 
-    public Drawable measureDrawable(Drawable drawable) {
-        if (null != drawable) {
-            drawable.setBounds(0, 0, drawable.getMinimumWidth(), drawable.getMinimumHeight());
+    /**
+     * 获取已经创建的Tab，Adapter模式下还没有创建的返回null。
+     */
+    private Tab peekTab(int position) {
+        if (mTabs instanceof LazyTabList) {
+            return ((LazyTabList) mTabs).peek(position);
         }
-        return drawable;
+        return mTabs.get(position);
     }
 
     /**
-     * TabView不允许有背景的，有的话会遮挡下划线的。
-     *
-     * @param tabView
+     * Adapter模式下没有测量过的Tab的预估宽度，用选中位置的Tab的默认宽度。
      */
-    private void clearBackground(View tabView) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-            tabView.setBackground(null);
+    private int getEstimatedTabWidth() {
+        if (mEstimatedTabWidth <= 0 && !mTabs.isEmpty()) {
+            int position = Math.max(0, Math.min(mCurrentTab, mTabs.size() - 1));
+            mEstimatedTabWidth = measureTabWidth(position, false);
+        }
+        return mEstimatedTabWidth;
+    }
+
+    private boolean checkInitState(ViewPager viewPager) {
+        if (!haveInit()) {
+            return false;
         }
+//        if (null == viewPager) {
+//            return false;
+//        }
+        if (mTabs == null) {
+            mTabs = new ArrayList<>();
+        }
+        return true;
     }
 
     /**
-     * 给tabView默认的LayoutParams,如果子View是默认填充满布局的也就是{@link #mTabFillContainer = true}，
-     * 这时就要设置weight = 1；
-     *
-     * @return
+     * 创建TabView。如果有设置Tab的布局文件，就使用布局文件，没有的话就自己创建TextView。
      */
-    private LinearLayout.LayoutParams getTabLayoutParams() {
-        if (mTabFillContainer) {
-            return new LinearLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT, 1);
-        } else {
+    @VisibleForTesting
+    void createTabs() {
+        if (null == mMetrics) {
+            doCreateTabs();
+            return;
+        }
+        long start = System.nanoTime();
+        doCreateTabs();
+        mMetrics.record(WeTabMetrics.SECTION_CREATE_TABS, System.nanoTime() - start);
+    }
+
+    private void doCreateTabs() {
+        mBuiltTabMode = getTabMode();
+        if (isDrawnMode()) {
+            syncDrawnTabs();
+            return;
+        }
+        //之前是自绘模式的话，容器上还留着自绘时的最小宽高。
+        mTabContainer.setMinimumWidth(0);
+        mTabContainer.setMinimumHeight(0);
+        detachDrawnTabAccessibilityHelper();
+        if (isVirtualMode()) {
+            createVirtualTabs();
+            return;
+        }
+        for (int i = 0; i < mTabs.size(); i++) {
+            Tab tab = mTabs.get(i);
+            tab.setPosition(i);
+            createTab(i, tab);
+        }
+    }
+
+    private void createTab(int i, Tab tab) {
+        LinearLayout tabView = newTabView(tab);
+        if (tabView.getChildCount() == 0) {
+            return;
+        }
+        bindTabView(tabView, tab, i);
+
+        LinearLayout.LayoutParams tabLayoutParams = getTabLayoutParams();
+        mTabContainer.setGravity(mTabContainerGravity);
+        mTabContainer.addView(tabView, i, tabLayoutParams);
+        if (null != mHandleTab) {
+            mHandleTab.addTab(tabView.getChildAt(0), i);
+        }
+        if (null != mTabAdapter) {
+            mTabAdapter.bindTab(tabView.getChildAt(0), i);
+        }
+    }
+
+    private LinearLayout newTabView(Tab tab) {
+        LinearLayout tabView = new LinearLayout(getContext());
+        tabView.setGravity(mTabContainerGravity);
+        if (!TextUtils.isEmpty(tab.getText())) {
+            View childView = new TextView(mContext);
+            tabView.addView(childView);
+        } else {
+            View childView = tab.getCustomView();
+            tabView.addView(childView);
+        }
+        return tabView;
+    }
+
+    /**
+     * 把Tab的内容绑定到TabView上，虚拟化模式下回收的TabView也是通过这里重新绑定。
+     */
+    private void bindTabView(LinearLayout tabView, Tab tab, int i) {
+        tab.view = tabView;
+        tab.targetView = tabView.getChildAt(0);
+        tabView.setTag(tab);
+        tabView.getChildAt(0).setPadding((int) mTabPaddingLeft, (int) mTabPaddingTop, (int) mTabPaddingRight, (int) mTabPaddingBottom);
+        setStyle(tabView.getChildAt(0), i);
+        tabView.setOnClickListener(mTabClickListener);
+    }
+
+    /**
+     * 有ViewPager或者ViewPager2的话让它切换到position，由它的回调来选中Tab。
+     *
+     * @param position
+     * @return false表示没有ViewPager。
+     */
+    private boolean setPagerItem(int position) {
+        if (null != mViewPager) {
+            if (mViewPager.getCurrentItem() != position) {
+                mViewPager.setCurrentItem(position);
+            }
+            return true;
+        }
+        if (null != mViewPager2) {
+            if (mViewPager2.getCurrentItem() != position) {
+                mViewPager2.setCurrentItem(position);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 点击了某个Tab，有ViewPager的话交给ViewPager切换，没有的话直接选中。
+     *
+     * @param position
+     */
+    private void onTabClick(int position) {
+        if (position < 0 || position >= mTabs.size()) {
+            return;
+        }
+        if (!setPagerItem(position)) {
+            selectedTab(position);
+            mCurrentTab = position;
+            animateToTab(position);
+        }
+    }
+
+    private boolean isVirtualMode() {
+        return mTabVirtualized && !mTabFillContainer && !mTabTextDrawn;
+    }
+
+    private boolean isDrawnMode() {
+        return mTabTextDrawn;
+    }
+
+    /**
+     * 自绘文本模式下，测量每个Tab的宽度并更新{@link #mTabOffsets}，已经测量过的标题直接用缓存。
+     */
+    private void syncDrawnTabs() {
+        int count = mTabs.size();
+        mTabOffsets.setCount(count);
+        float textHeight = getDrawnTextHeight();
+        int minHeight = 0;
+        for (int i = 0; i < count; i++) {
+            Tab tab = mTabs.get(i);
+            tab.setPosition(i);
+            float textWidth = Math.max(getDrawnTitleWidth(tab, false), getDrawnTitleWidth(tab, true));
+            mTabOffsets.setWidth(i, getDrawnContentWidth(tab, textWidth));
+            minHeight = Math.max(minHeight, getDrawnContentHeight(tab, textHeight));
+        }
+        mTabContainer.setMinimumWidth(mTabOffsets.getTotalWidth());
+        //没有TabView撑起高度，wrap_content的时候按字体和图标的高度加上下padding。
+        mTabContainer.setMinimumHeight(minHeight);
+        mTabContainer.requestLayout();
+        attachDrawnTabAccessibilityHelper();
+        invalidateIndicatorGeometry();
+        invalidate();
+    }
+
+    /**
+     * 自绘文本模式下标题在默认或者选中状态下的宽度，测量结果缓存在Tab上。
+     */
+    private float getDrawnTitleWidth(Tab tab, boolean selected) {
+        if (selected) {
+            return tab.selectedTitleWidth.measure(mTextPaint, tab.getText(), mSelectedTabTextSize, null, mSelectedTabTextStyleBold);
+        }
+        return tab.defaultTitleWidth.measure(mTextPaint, tab.getText(), mDefaultTabTextSize, null, false);
+    }
+
+    /**
+     * 自绘文本的高度，按选中和默认里较大的字号。
+     */
+    private float getDrawnTextHeight() {
+        mTextPaint.setTextSize(Math.max(mDefaultTabTextSize, mSelectedTabTextSize));
+        return mTextPaint.descent() - mTextPaint.ascent();
+    }
+
+    /**
+     * 自绘Tab内容的高度，包括上下的padding和上下方向的图标。
+     */
+    private int getDrawnContentHeight(Tab tab, float textHeight) {
+        float height = textHeight;
+        IWeTabDrawable icon = getTabIcon(tab);
+        if (null != icon) {
+            Drawable defaultDrawable = getMeasuredIcon(icon, false);
+            Drawable selectedDrawable = getMeasuredIcon(icon, true);
+            int drawableHeight = Math.max(null == defaultDrawable ? 0 : defaultDrawable.getBounds().height(),
+                    null == selectedDrawable ? 0 : selectedDrawable.getBounds().height());
+            if (drawableHeight > 0) {
+                int gravity = icon.getGravity();
+                if (gravity == Gravity.TOP || gravity == Gravity.BOTTOM) {
+                    height += drawableHeight + icon.getDrawablePadding();
+                } else {
+                    height = Math.max(height, drawableHeight);
+                }
+            }
+        }
+        return (int) Math.ceil(height) + (int) mTabPaddingTop + (int) mTabPaddingBottom;
+    }
+
+    private void attachDrawnTabAccessibilityHelper() {
+        if (null == mDrawnTabAccessibilityHelper) {
+            mDrawnTabAccessibilityHelper = new DrawnTabAccessibilityHelper();
+            ViewCompat.setAccessibilityDelegate(this, mDrawnTabAccessibilityHelper);
+        } else {
+            mDrawnTabAccessibilityHelper.invalidateRoot();
+        }
+    }
+
+    private void detachDrawnTabAccessibilityHelper() {
+        if (null != mDrawnTabAccessibilityHelper) {
+            ViewCompat.setAccessibilityDelegate(this, null);
+            mDrawnTabAccessibilityHelper = null;
+        }
+    }
+
+    /**
+     * 自绘Tab内容的宽度，包括左右的padding和左右方向的图标。
+     */
+    private int getDrawnContentWidth(Tab tab, float textWidth) {
+        int width = (int) Math.ceil(textWidth);
+        IWeTabDrawable icon = getTabIcon(tab);
+        if (null != icon) {
+            //选中和默认的图标取宽的那个，切换选中状态时Tab的宽度不变。
+            Drawable defaultDrawable = getMeasuredIcon(icon, false);
+            Drawable selectedDrawable = getMeasuredIcon(icon, true);
+            int drawableWidth = Math.max(null == defaultDrawable ? 0 : defaultDrawable.getBounds().width(),
+                    null == selectedDrawable ? 0 : selectedDrawable.getBounds().width());
+            if (drawableWidth > 0) {
+                int gravity = icon.getGravity();
+                if (gravity == Gravity.LEFT || gravity == Gravity.RIGHT) {
+                    width += drawableWidth + icon.getDrawablePadding();
+                } else {
+                    width = Math.max(width, drawableWidth);
+                }
+            }
+        }
+        return width + (int) mTabPaddingLeft + (int) mTabPaddingRight;
+    }
+
+    /**
+     * Tab的图标：优先用设置到Tab上的，没有的话再按标题找{@link #addTabDrawable(WeTabDrawable)}添加的，找到的结果缓存在Tab上。
+     */
+    private IWeTabDrawable getTabIcon(Tab tab) {
+        if (null != tab.icon) {
+            return tab.icon;
+        }
+        if (null == mTabDrawables || null == tab.getText()) {
+            return null;
+        }
+        WeTabDrawable drawable = mTabDrawables.get(tab.getText().toString());
+        if (null != drawable) {
+            tab.icon = drawable;
+            tab.iconFromTitle = true;
+        }
+        return drawable;
+    }
+
+    /**
+     * 获取图标，第一次用到的时候按最小宽高设置bounds，之后不再重复测量。
+     */
+    private Drawable getMeasuredIcon(IWeTabDrawable icon, boolean selected) {
+        Drawable drawable = icon.getDrawable(selected);
+        if (null != drawable && drawable.getBounds().isEmpty()) {
+            measureDrawable(drawable);
+        }
+        return drawable;
+    }
+
+    /**
+     * 把Tab在选中或者默认状态下的图标设置到TextView上，跟TextView上次设置的图标一样的话不再调用setCompoundDrawables。
+     * 没有图标并且也没有设置过的TextView不处理，自定义的TextView自己的图标会保留。
+     */
+    private void applyTabIcon(TextView textView, Tab tab, boolean selected) {
+        IWeTabDrawable icon = getTabIcon(tab);
+        Drawable drawable = null == icon ? null : getMeasuredIcon(icon, selected);
+        if (textView.getTag(R.id.wtl_tab_icon) == drawable) {
+            return;
+        }
+        int gravity = null == icon ? Gravity.NO_GRAVITY : icon.getGravity();
+        textView.setCompoundDrawables(
+                gravity == Gravity.LEFT ? drawable : null,
+                gravity == Gravity.TOP ? drawable : null,
+                gravity == Gravity.RIGHT ? drawable : null,
+                gravity == Gravity.BOTTOM ? drawable : null);
+        if (null != icon) {
+            textView.setCompoundDrawablePadding(icon.getDrawablePadding());
+        }
+        textView.setTag(R.id.wtl_tab_icon, drawable);
+    }
+
+    /**
+     * 自绘文本模式下根据容器的宽度计算第一个Tab的位置，Tab充满父布局的时候把剩余的宽度平分给每个Tab。
+     */
+    private void layoutDrawnTabs() {
+        int count = mTabOffsets.getCount();
+        int total = mTabOffsets.getTotalWidth();
+        int containerWidth = mTabContainer.getWidth();
+        mDrawnTabOrigin = 0;
+        mDrawnTabExtra = 0;
+        if (count <= 0 || containerWidth <= total) {
+            return;
+        }
+        if (mTabFillContainer) {
+            mDrawnTabExtra = (containerWidth - total) / count;
+            return;
+        }
+        int gravity = Gravity.getAbsoluteGravity(mTabContainerGravity, ViewCompat.getLayoutDirection(this))
+                & Gravity.HORIZONTAL_GRAVITY_MASK;
+        if (gravity == Gravity.CENTER_HORIZONTAL) {
+            mDrawnTabOrigin = (containerWidth - total) / 2;
+        } else if (gravity == Gravity.RIGHT) {
+            mDrawnTabOrigin = containerWidth - total;
+        }
+    }
+
+    /**
+     * 在几何缓存里二分查找x所在的Tab。
+     *
+     * @param x 相对于容器左边界的距离。
+     * @return
+     */
+    private int findTabInGeometry(int x) {
+        if (mIndicatorGeometryCount <= 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = mIndicatorGeometryCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mTabLefts[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 绘制可见范围内的Tab文本和图标。几何缓存是相对容器的，先平移到容器的位置，
+     * 跟{@link #getTabIndexAt(int)}和{@link #getTabBounds(int, Rect)}用同一个坐标系。
+     */
+    private void drawTabTexts(Canvas canvas) {
+        int count = Math.min(mTabs.size(), mIndicatorGeometryCount);
+        if (count <= 0) {
+            return;
+        }
+        int containerLeft = mTabContainer.getLeft();
+        int first = findTabInGeometry(getScrollX() - containerLeft);
+        int last = Math.min(count - 1, findTabInGeometry(getScrollX() + getWidth() - containerLeft));
+        int saveCount = canvas.save();
+        canvas.translate(containerLeft, mTabContainer.getTop());
+        for (int i = Math.max(0, first); i <= last; i++) {
+            drawTabText(canvas, i);
+        }
+        canvas.restoreToCount(saveCount);
+        mTextPaint.setFakeBoldText(false);
+    }
+
+    private void drawTabText(Canvas canvas, int i) {
+        Tab tab = mTabs.get(i);
+        CharSequence text = tab.getText();
+        boolean selected = i == mCurrentTab;
+        float textWidth = getDrawnTitleWidth(tab, selected);
+        mTextPaint.setTextSize(selected ? mSelectedTabTextSize : mDefaultTabTextSize);
+        mTextPaint.setColor(selected ? mSelectedTabTextColor : mDefaultTabTextColor);
+        mTextPaint.setFakeBoldText(selected && mSelectedTabTextStyleBold);
+
+        float centerX = (mTabLefts[i] + mTabPaddingLeft + mTabRights[i] - mTabPaddingRight) / 2f;
+        float centerY = (mTabPaddingTop + mIndicatorBottoms[i] - mTabPaddingBottom) / 2f;
+        float ascent = mTextPaint.ascent();
+        float textHeight = mTextPaint.descent() - ascent;
+        float textX = centerX - textWidth / 2;
+        float textTop = centerY - textHeight / 2;
+
+        IWeTabDrawable tabDrawable = getTabIcon(tab);
+        Drawable drawable = null == tabDrawable ? null : getMeasuredIcon(tabDrawable, selected);
+        if (null != drawable) {
+            int drawableWidth = drawable.getBounds().width();
+            int drawableHeight = drawable.getBounds().height();
+            int padding = tabDrawable.getDrawablePadding();
+            int gravity = tabDrawable.getGravity();
+            float drawableX;
+            float drawableY;
+            if (gravity == Gravity.LEFT || gravity == Gravity.RIGHT) {
+                float contentLeft = centerX - (textWidth + drawableWidth + padding) / 2;
+                drawableY = centerY - drawableHeight / 2f;
+                if (gravity == Gravity.LEFT) {
+                    drawableX = contentLeft;
+                    textX = contentLeft + drawableWidth + padding;
+                } else {
+                    textX = contentLeft;
+                    drawableX = contentLeft + textWidth + padding;
+                }
+            } else {
+                float contentTop = centerY - (textHeight + drawableHeight + padding) / 2;
+                drawableX = centerX - drawableWidth / 2f;
+                if (gravity == Gravity.TOP) {
+                    drawableY = contentTop;
+                    textTop = contentTop + drawableHeight + padding;
+                } else {
+                    textTop = contentTop;
+                    drawableY = contentTop + textHeight + padding;
+                }
+            }
+            int saveCount = canvas.save();
+            canvas.translate(drawableX, drawableY);
+            drawable.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+        if (null != text && text.length() > 0) {
+            canvas.drawText(text, 0, text.length(), textX, textTop - ascent, mTextPaint);
+        }
+    }
+
+    /**
+     * 自绘文本模式下的点击：按下和抬起之间没有滑动超过touchSlop就算点击，按x坐标找到对应的Tab。
+     */
+    private void handleDrawnTabTouch(MotionEvent ev) {
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mDrawnTouchX = ev.getX();
+                mDrawnTouchTap = true;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (Math.abs(ev.getX() - mDrawnTouchX) > mTouchSlop) {
+                    mDrawnTouchTap = false;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if (mDrawnTouchTap) {
+                    mDrawnTouchTap = false;
+                    int position = getTabIndexAt((int) ev.getX());
+                    if (position >= 0) {
+                        //OnClickListener和无障碍服务也要收到这次点击。
+                        performClick();
+                        onTabClick(position);
+                    }
+                }
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                mDrawnTouchTap = false;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean isVirtualStripAttached() {
+        return null != mVirtualLeadingSpace && mVirtualLeadingSpace.getParent() == mTabContainer;
+    }
+
+    /**
+     * 虚拟化模式下先测量所有Tab的宽度，再只创建可见窗口内的TabView。
+     */
+    private void createVirtualTabs() {
+        mFirstVirtualTab = 0;
+        mLastVirtualTab = -1;
+        int count = mTabs.size();
+        mTabOffsets.setCount(count);
+        for (int i = 0; i < count; i++) {
+            Tab tab = peekTab(i);
+            if (null == tab) {
+                mTabOffsets.setWidth(i, getEstimatedTabWidth());
+                continue;
+            }
+            tab.setPosition(i);
+            mTabOffsets.setWidth(i, measureTabWidth(i, i == mCurrentTab));
+        }
+        if (null == mVirtualLeadingSpace) {
+            mVirtualLeadingSpace = new Space(mContext);
+            mVirtualTrailingSpace = new Space(mContext);
+        }
+        mTabContainer.setGravity(mTabContainerGravity);
+        mTabContainer.addView(mVirtualLeadingSpace, new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.MATCH_PARENT));
+        mTabContainer.addView(mVirtualTrailingSpace, new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.MATCH_PARENT));
+        invalidateIndicatorGeometry();
+        updateVirtualTabs();
+    }
+
+    /**
+     * 根据当前的滑动位置计算需要创建TabView的窗口，窗口外的TabView回收，窗口内缺少的TabView从回收池里取出来绑定。
+     */
+    private void updateVirtualTabs() {
+        if (!isVirtualMode() || !isVirtualStripAttached()) {
+            return;
+        }
+        int count = mTabOffsets.getCount();
+        if (count <= 0) {
+            return;
+        }
+        int viewport = getWidth() > 0 ? getWidth() : getResources().getDisplayMetrics().widthPixels;
+        int scrollX = getScrollX() - mVirtualLeadingSpace.getLeft();
+        int first = Math.max(0, mTabOffsets.indexAt(scrollX) - mVirtualTabBuffer);
+        int last = Math.min(count - 1, mTabOffsets.indexAt(scrollX + viewport) + mVirtualTabBuffer);
+        if (first == mFirstVirtualTab && last == mLastVirtualTab) {
+            return;
+        }
+        for (int i = mLastVirtualTab; i >= mFirstVirtualTab; i--) {
+            if (i < first || i > last) {
+                recycleVirtualTab(mTabs.get(i));
+            }
+        }
+        int scrollCorrection = 0;
+        for (int i = first; i <= last; i++) {
+            if (i >= mFirstVirtualTab && i <= mLastVirtualTab) {
+                continue;
+            }
+            Tab tab = mTabs.get(i);
+            if (!tab.widthMeasured) {
+                //按预估宽度占位的Tab第一次进入窗口，换成真实的宽度；在可见区域左边的Tab宽度变了要修正滚动距离，内容才不会跳动。
+                int width = measureTabWidth(i, i == mCurrentTab);
+                int delta = width - mTabOffsets.getWidth(i);
+                if (delta != 0) {
+                    if (mTabOffsets.getEnd(i) <= scrollX) {
+                        scrollCorrection += delta;
+                    }
+                    mTabOffsets.setWidth(i, width);
+                    invalidateIndicatorGeometry();
+                }
+            }
+            LinearLayout tabView = obtainVirtualTabView(tab);
+            bindTabView(tabView, tab, i);
+            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(mTabOffsets.getWidth(i), ViewGroup.LayoutParams.MATCH_PARENT);
+            mTabContainer.addView(tabView, 1 + i - first, params);
+            if (null != mHandleTab) {
+                mHandleTab.addTab(tabView.getChildAt(0), i);
+            }
+            if (null != mTabAdapter) {
+                mTabAdapter.bindTab(tabView.getChildAt(0), i);
+            }
+        }
+        mFirstVirtualTab = first;
+        mLastVirtualTab = last;
+        updateVirtualSpaces();
+        if (scrollCorrection != 0) {
+            scrollBy(scrollCorrection, 0);
+        }
+    }
+
+    /**
+     * Tab的数量或者顺序变了，回收所有的TabView，重新按窗口绑定。
+     */
+    private void rebindVirtualTabs() {
+        for (int i = mTabContainer.getChildCount() - 2; i >= 1; i--) {
+            Object tag = mTabContainer.getChildAt(i).getTag();
+            if (tag instanceof Tab) {
+                recycleVirtualTab((Tab) tag);
+            }
+        }
+        mFirstVirtualTab = 0;
+        mLastVirtualTab = -1;
+        invalidateIndicatorGeometry();
+        updateVirtualTabs();
+    }
+
+    private LinearLayout obtainVirtualTabView(Tab tab) {
+        if (TextUtils.isEmpty(tab.getText())) {
+            //自定义布局的Tab一直持有自己的TabView。
+            if (tab.view instanceof LinearLayout) {
+                return (LinearLayout) tab.view;
+            }
+            return newTabView(tab);
+        }
+        if (!mTabViewPool.isEmpty()) {
+            return mTabViewPool.remove(mTabViewPool.size() - 1);
+        }
+        return newTabView(tab);
+    }
+
+    private void recycleVirtualTab(Tab tab) {
+        View tabView = tab.view;
+        if (null == tabView) {
+            return;
+        }
+        mTabContainer.removeView(tabView);
+        if (!TextUtils.isEmpty(tab.getText())) {
+            mTabViewPool.add((LinearLayout) tabView);
+            tab.view = null;
+            tab.targetView = null;
+        }
+    }
+
+    /**
+     * 更新窗口前后占位的宽度。
+     */
+    private void updateVirtualSpaces() {
+        int count = mTabOffsets.getCount();
+        int leading = mLastVirtualTab >= mFirstVirtualTab ? mTabOffsets.getStart(mFirstVirtualTab) : 0;
+        int trailing = mTabOffsets.getTotalWidth() - (mLastVirtualTab >= mFirstVirtualTab ? mTabOffsets.getEnd(mLastVirtualTab) : 0);
+        if (count <= 0) {
+            trailing = 0;
+        }
+        setSpaceWidth(mVirtualLeadingSpace, leading);
+        setSpaceWidth(mVirtualTrailingSpace, trailing);
+    }
+
+    private void setSpaceWidth(View space, int width) {
+        ViewGroup.LayoutParams params = space.getLayoutParams();
+        if (null != params && params.width != width) {
+            params.width = width;
+            space.requestLayout();
+        }
+    }
+
+    /**
+     * 虚拟化模式下，选中状态改变会改变Tab的宽度，重新测量并更新窗口内的TabView和占位。
+     */
+    private void refreshVirtualTabWidth(int position, boolean selected) {
+        if (position < 0 || position >= mTabs.size() || position >= mTabOffsets.getCount()) {
+            return;
+        }
+        int width = measureTabWidth(position, selected);
+        if (width == mTabOffsets.getWidth(position)) {
+            return;
+        }
+        mTabOffsets.setWidth(position, width);
+        View tabView = mTabs.get(position).view;
+        if (null != tabView && tabView.getParent() == mTabContainer) {
+            tabView.getLayoutParams().width = width;
+            tabView.requestLayout();
+        }
+        updateVirtualSpaces();
+        invalidateIndicatorGeometry();
+    }
+
+    /**
+     * 不创建真实的TabView，测量某个Tab在选中或者默认状态下的宽度。
+     */
+    private int measureTabWidth(int position, boolean selected) {
+        Tab tab = mTabs.get(position);
+        LinearLayout tabView;
+        if (TextUtils.isEmpty(tab.getText())) {
+            if (!(tab.view instanceof LinearLayout)) {
+                tab.view = newTabView(tab);
+                tab.targetView = ((LinearLayout) tab.view).getChildAt(0);
+            }
+            tabView = (LinearLayout) tab.view;
+        } else {
+            if (null == mMeasureTabView) {
+                mMeasureTabView = newTabView(tab);
+            }
+            tabView = mMeasureTabView;
+            TextView textView = (TextView) tabView.getChildAt(0);
+            textView.setPadding((int) mTabPaddingLeft, (int) mTabPaddingTop, (int) mTabPaddingRight, (int) mTabPaddingBottom);
+            setStyle(textView, position);
+            setSelectedTabStyle(textView, selected, tab);
+        }
+        int unspecified = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        tabView.measure(unspecified, unspecified);
+        tab.widthMeasured = true;
+        return tabView.getMeasuredWidth();
+    }
+
+    public Tab newTab() {
+        Tab tab = new Tab();
+        tab.parent = this;
+        return tab;
+    }
+    public void addTab(@NonNull Tab tab) {
+        addTab(tab, mTabs.isEmpty());
+    }
+
+    public void addTab(Tab tab, int position) {
+        addTab(tab, position, mTabs.isEmpty());
+    }
+
+    public void addTab(Tab tab, boolean setSelected) {
+        addTab(tab, mTabs.size(), setSelected);
+    }
+
+    /**
+     * Add a tab to this layout. The tab will be inserted at <code>position</code>.
+     *
+     * @param tab The tab to add
+     * @param position The new position of the tab
+     * @param setSelected True if the added tab should become the selected tab.
+     */
+    public void addTab(Tab tab, int position, boolean setSelected) {
+        if (tab.parent != this) {
+            throw new IllegalArgumentException("Tab belongs to a different TabLayout.");
+        }
+        configureTab(tab, position);
+        //插在选中的Tab前面，选中的位置要跟着后移。
+        if (mTabs.size() > 1 && position <= mCurrentTab) {
+            mCurrentTab++;
+        }
+        if (isDrawnMode()) {
+            syncDrawnTabs();
+        } else if (isVirtualMode()) {
+            if (isVirtualStripAttached()) {
+                mTabOffsets.insert(position, measureTabWidth(position, position == mCurrentTab));
+                rebindVirtualTabs();
+            } else {
+                mTabContainer.removeAllViews();
+                createVirtualTabs();
+            }
+        } else {
+            createTab(position, tab);
+        }
+
+        if (setSelected) {
+            selectedTab(position);
+            mCurrentTab = position;
+        }
+    }
+
+    private void configureTab(@NonNull Tab tab, int position) {
+        tab.setPosition(position);
+        mTabs.add(position, tab);
+        markTabPositionsDirty(position + 1);
+    }
+
+    public void removeTab(Tab tab) {
+        if (null == tab || tab.parent != this) {
+            return;
+        }
+        removeTabAt(tab.getPosition());
+    }
+
+    /**
+     * 删除某个位置的Tab，只移除这一个TabView。
+     *
+     * @param position
+     */
+    public void removeTabAt(int position) {
+        if (!haveInit() || position < 0 || position >= mTabs.size()) {
+            return;
+        }
+        Tab tab = mTabs.remove(position);
+        markTabPositionsDirty(position);
+        boolean virtual = isVirtualStripAttached();
+        if (virtual) {
+            mTabOffsets.remove(position);
+        } else if (null != tab && null != tab.view) {
+            mTabContainer.removeView(tab.view);
+        }
+        if (position < mCurrentTab) {
+            mCurrentTab--;
+        } else if (position == mCurrentTab) {
+            reselectAfterRemoval(position);
+        }
+        if (virtual) {
+            rebindVirtualTabs();
+        }
+        if (null != tab) {
+            //Adapter模式下还没有创建过的Tab是null。
+            tab.view = null;
+            tab.targetView = null;
+            tab.setPosition(-1);
+        }
+        onTabsChanged();
+    }
+
+    /**
+     * 更新某个位置Tab的标题，只重新设置这一个TabView的文本。
+     *
+     * @param position
+     * @param text
+     */
+    public void updateTab(int position, CharSequence text) {
+        if (!haveInit() || position < 0 || position >= mTabs.size()) {
+            return;
+        }
+        Tab tab = mTabs.get(position);
+        if (TextUtils.equals(tab.getText(), text)) {
+            return;
+        }
+        tab.setText(text);
+        if (tab.targetView instanceof TextView) {
+            setStyle(tab.targetView, position);
+        }
+        if (isVirtualStripAttached()) {
+            refreshVirtualTabWidth(position, position == mCurrentTab);
+        }
+        if (isDrawnMode()) {
+            syncDrawnTabs();
+        }
+        invalidateIndicatorGeometry();
+    }
+
+    /**
+     * 把from位置的Tab移动到to的位置，选中的Tab跟着移动。
+     *
+     * @param from
+     * @param to
+     */
+    public void moveTab(int from, int to) {
+        int count = mTabs.size();
+        if (!haveInit() || from == to || from < 0 || from >= count || to < 0 || to >= count) {
+            return;
+        }
+        Tab tab = mTabs.remove(from);
+        mTabs.add(to, tab);
+        markTabPositionsDirty(Math.min(from, to));
+        if (isVirtualStripAttached()) {
+            mTabOffsets.move(from, to);
+            rebindVirtualTabs();
+        } else if (null != tab.view && tab.view.getParent() == mTabContainer) {
+            ViewGroup.LayoutParams params = tab.view.getLayoutParams();
+            mTabContainer.removeView(tab.view);
+            mTabContainer.addView(tab.view, to, params);
+        }
+        if (mCurrentTab == from) {
+            mCurrentTab = to;
+        } else if (from < mCurrentTab && to >= mCurrentTab) {
+            mCurrentTab--;
+        } else if (from > mCurrentTab && to <= mCurrentTab) {
+            mCurrentTab++;
+        }
+        onTabsChanged();
+    }
+
+    /**
+     * 提交新的标题列表，跟当前的Tab做差分，只处理新增、删除、移动和文本变化的Tab，其余的TabView原样保留。
+     *
+     * @param titles
+     */
+    public void submitTitles(List<String> titles) {
+        if (!haveInit() || null == titles) {
+            return;
+        }
+        int oldSize = mTabs.size();
+        int newSize = titles.size();
+        List<CharSequence> oldTitles = new ArrayList<>(oldSize);
+        for (int i = 0; i < oldSize; i++) {
+            oldTitles.add(mTabs.get(i).getText());
+        }
+        TabDiff diff = TabDiff.calculate(oldTitles, titles);
+        if (diff.firstChanged == oldSize && oldSize == newSize) {
+            return;
+        }
+        List<Tab> oldTabs = new ArrayList<>(mTabs);
+        Tab[] newTabs = new Tab[newSize];
+        boolean[] textChanged = new boolean[newSize];
+        for (int j = 0; j < newSize; j++) {
+            int oldPosition = diff.newToOld[j];
+            String title = titles.get(j);
+            if (oldPosition != TabDiff.NO_POSITION) {
+                Tab oldTab = oldTabs.get(oldPosition);
+                if (TextUtils.equals(oldTab.getText(), title)) {
+                    newTabs[j] = oldTab;
+                    continue;
+                }
+                //自定义布局的Tab没法只换文本。
+                if (!TextUtils.isEmpty(oldTab.getText())) {
+                    oldTab.setText(title);
+                    newTabs[j] = oldTab;
+                    textChanged[j] = true;
+                    continue;
+                }
+            }
+            Tab tab = newTab();
+            tab.setText(title);
+            newTabs[j] = tab;
+        }
+
+        //选中的Tab还在的话继续选中它，不在的话选中同位置的Tab。
+        int oldCurrent = mCurrentTab;
+        Tab oldSelected = oldCurrent >= 0 && oldCurrent < oldSize ? oldTabs.get(oldCurrent) : null;
+        int newCurrent = Math.max(0, Math.min(oldCurrent, newSize - 1));
+        if (null != oldSelected) {
+            int j = diff.oldToNew[oldCurrent];
+            if (j != TabDiff.NO_POSITION && newTabs[j] == oldSelected && !textChanged[j]) {
+                newCurrent = j;
+            }
+        }
+
+        boolean virtual = isVirtualStripAttached();
+        boolean drawn = isDrawnMode();
+        int[] widths = null;
+        if (virtual) {
+            widths = new int[newSize];
+            for (int j = 0; j < newSize; j++) {
+                int oldPosition = diff.newToOld[j];
+                boolean reuse = oldPosition != TabDiff.NO_POSITION && newTabs[j] == oldTabs.get(oldPosition)
+                        && !textChanged[j] && (oldPosition == oldCurrent) == (j == newCurrent);
+                widths[j] = reuse ? mTabOffsets.getWidth(oldPosition) : -1;
+            }
+        } else if (!drawn) {
+            //先把要删除、移动和更新的TabView拿出来，容器里剩下的都是顺序不变的TabView。
+            for (int i = oldSize - 1; i >= diff.firstChanged; i--) {
+                int j = diff.oldToNew[i];
+                Tab oldTab = oldTabs.get(i);
+                if (j != TabDiff.NO_POSITION && diff.stable[j] && newTabs[j] == oldTab) {
+                    continue;
+                }
+                if (null != oldTab.view) {
+                    mTabContainer.removeView(oldTab.view);
+                }
+            }
+        }
+        for (int i = 0; i < oldSize; i++) {
+            int j = diff.oldToNew[i];
+            Tab oldTab = oldTabs.get(i);
+            if (j == TabDiff.NO_POSITION || newTabs[j] != oldTab) {
+                if (!virtual) {
+                    oldTab.view = null;
+                    oldTab.targetView = null;
+                }
+                oldTab.setPosition(-1);
+            }
+        }
+
+        mTabs.clear();
+        mTabs.addAll(Arrays.asList(newTabs));
+        mCurrentTab = newCurrent;
+        markTabPositionsDirty(diff.firstChanged);
+
+        if (virtual) {
+            mTabOffsets.setCount(newSize);
+            for (int j = 0; j < newSize; j++) {
+                int width = widths[j] >= 0 ? widths[j] : measureTabWidth(j, j == newCurrent);
+                mTabOffsets.setWidth(j, width);
+            }
+            rebindVirtualTabs();
+        } else if (!drawn) {
+            for (int j = diff.firstChanged; j < newSize; j++) {
+                Tab tab = newTabs[j];
+                int oldPosition = diff.newToOld[j];
+                if (oldPosition != TabDiff.NO_POSITION && diff.stable[j] && tab == oldTabs.get(oldPosition)) {
+                    continue;
+                }
+                if (tab.view instanceof LinearLayout && tab.view.getParent() == null) {
+                    if (textChanged[j]) {
+                        setStyle(tab.targetView, j);
+                    }
+                    mTabContainer.addView(tab.view, j, tab.view.getLayoutParams());
+                } else {
+                    createTab(j, tab);
+                }
+            }
+            //只有前后两个选中的Tab需要更新样式。
+            Tab newSelected = newSize > 0 ? newTabs[newCurrent] : null;
+            if (null != oldSelected && oldSelected != newSelected && oldSelected.targetView instanceof TextView) {
+                setSelectedTabStyle((TextView) oldSelected.targetView, false, oldSelected);
+            }
+            if (null != newSelected && newSelected.targetView instanceof TextView) {
+                setSelectedTabStyle((TextView) newSelected.targetView, true, newSelected);
+            }
+        }
+        onTabsChanged();
+    }
+
+    /**
+     * 删除了选中的Tab之后，选中同位置（或者最后一个）的Tab，只更新它自己的样式。
+     */
+    private void reselectAfterRemoval(int position) {
+        if (mTabs.isEmpty()) {
+            mCurrentTab = 0;
+            return;
+        }
+        mCurrentTab = Math.min(position, mTabs.size() - 1);
+        View targetView = mTabs.get(mCurrentTab).targetView;
+        if (targetView instanceof TextView) {
+            setSelectedTabStyle((TextView) targetView, true, mTabs.get(mCurrentTab));
+        }
+        if (isVirtualStripAttached()) {
+            refreshVirtualTabWidth(mCurrentTab, true);
+        }
+    }
+
+    /**
+     * Tab增删移动之后，让下划线停在选中的Tab上，等重新布局之后再刷新。
+     */
+    private void onTabsChanged() {
+        cancelIndicatorAnimation();
+        mCurrentScrollTab = mCurrentTab;
+        mPositionOffset = 0;
+        if (isDrawnMode()) {
+            syncDrawnTabs();
+        }
+        invalidateIndicatorGeometry();
+    }
+
+    private void markTabPositionsDirty(int position) {
+        if (mDirtyTabPosition < 0 || position < mDirtyTabPosition) {
+            mDirtyTabPosition = position;
+        }
+    }
+
+    /**
+     * 给位置发生变化的Tab重新编号。
+     */
+    private void ensureTabPositions() {
+        if (mDirtyTabPosition < 0) {
+            return;
+        }
+        int count = mTabs.size();
+        for (int i = mDirtyTabPosition; i < count; i++) {
+            Tab tab = peekTab(i);
+            if (null != tab) {
+                tab.setPosition(i);
+            }
+        }
+        mDirtyTabPosition = -1;
+    }
+
+    /**
+     * 选中Tab时，更改Tab的文本样式。
+     *
+     * @param selectedIndex
+     */
+    private void selectedTab(int selectedIndex) {
+        selectedTab(selectedIndex, true);
+    }
+
+    /**
+     * @param selectedIndex
+     * @param dispatch      是否回调{@link OnTabSelectedListener}，恢复状态的时候不回调。
+     */
+    private void selectedTab(int selectedIndex, boolean dispatch) {
+        if (null == mTabContainer || mTabs.isEmpty()) {
+            return;
+        }
+        int tabCount = mTabs.size();
+        //只有上一个选中的Tab和新选中的Tab需要更新样式。
+        if (mCurrentTab >= 0 && mCurrentTab < tabCount && mCurrentTab != selectedIndex) {
+            View childAt = mTabs.get(mCurrentTab).targetView;
+            if (childAt instanceof TextView) {
+                setSelectedTabStyle((TextView) childAt, false, mTabs.get(mCurrentTab));
+                applyTabIcon((TextView) childAt, mTabs.get(mCurrentTab), false);
+                if (null != mMetrics) {
+                    mMetrics.addRestyle();
+                }
+            }
+        }
+        if (selectedIndex >= 0 && selectedIndex < tabCount) {
+            View childAt = mTabs.get(selectedIndex).targetView;
+            if (childAt instanceof TextView) {
+                setSelectedTabStyle((TextView) childAt, true, mTabs.get(selectedIndex));
+                applyTabIcon((TextView) childAt, mTabs.get(selectedIndex), true);
+                if (null != mMetrics) {
+                    mMetrics.addRestyle();
+                }
+            }
+        }
+        if (isVirtualMode() && selectedIndex != mCurrentTab) {
+            refreshVirtualTabWidth(mCurrentTab, false);
+            refreshVirtualTabWidth(selectedIndex, true);
+        }
+        if (isDrawnMode()) {
+            //自绘的文本样式变了，要整个重绘。
+            invalidateIndicatorGeometry();
+            invalidate();
+            if (null != mDrawnTabAccessibilityHelper) {
+                mDrawnTabAccessibilityHelper.invalidateVirtualView(mCurrentTab);
+                mDrawnTabAccessibilityHelper.invalidateVirtualView(selectedIndex);
+            }
+        }
+        if (mSelectedTextScale) {
+            if (mIndicatorEqualTabText) {
+                invalidateIndicatorGeometry();
+            }
+            //滑动中选中的话，正在渐变的两个Tab保持渐变的缩放。
+            updateTabTextScale();
+        }
+        if (dispatch && null != mTabSelectedListener) {
+            if (selectedIndex >= 0 && selectedIndex < tabCount) {
+                mTabSelectedListener.onTabSelected(mTabs.get(selectedIndex));
+            }
+            if (mCurrentTab >= 0 && mCurrentTab < tabCount) {
+                if(selectedIndex != mCurrentTab) {
+                    mTabSelectedListener.onPreTabSelected(mTabs.get(mCurrentTab));
+                }
+            }
+        }
+    }
+
+    /**
+     * 设置选中或者默认的文本样式，跟当前一样的属性不再设置，文字大小不变的话就不会触发重新布局。
+     *
+     * @param selected
+     * @param isSelected
+     */
+    public void setSelectedTabStyle(TextView selected, boolean isSelected) {
+        setSelectedTabStyle(selected, isSelected, null);
+    }
+
+    /**
+     * @param tab 有的话按{@link #TITLE_OVERFLOW_SHRINK}缩小放不下的标题。
+     */
+    private void setSelectedTabStyle(TextView selected, boolean isSelected, Tab tab) {
+        int textColor = isSelected ? mSelectedTabTextColor : mDefaultTabTextColor;
+        if (selected.getCurrentTextColor() != textColor) {
+            selected.setTextColor(textColor);
+        }
+        float textSize = isSelected ? mSelectedTabTextSize : mDefaultTabTextSize;
+        float scale = 1;
+        if (mSelectedTextScale) {
+            textSize = getScaleLayoutTextSize();
+            scale = getTabTextScale(isSelected);
+        }
+        textSize *= getTitleShrinkScale(selected, tab);
+        if (selected.getTextSize() != textSize) {
+            selected.setTextSize(TypedValue.COMPLEX_UNIT_PX, textSize);
+            if (null != mMetrics) {
+                mMetrics.addTextSizeLayout();
+            }
+        }
+        setTextScale(selected, scale);
+        if (mSelectedTabTextStyleBold && selected.getPaint().isFakeBoldText() != isSelected) {
+            selected.getPaint().setFakeBoldText(isSelected);
+            selected.invalidate();
+        }
+    }
+
+    /**
+     * 标题在最大宽度里放不下时字号要缩小的比例。按较大的字号和加粗来算，选中和默认用同一个比例，切换时宽度不会跳。
+     */
+    private float getTitleShrinkScale(TextView textView, Tab tab) {
+        if (mTabTitleOverflow != TITLE_OVERFLOW_SHRINK || mTabMaxWidth <= 0
+                || null == tab || TextUtils.isEmpty(tab.getText())) {
+            return 1;
+        }
+        float titleWidth = tab.fitTitleWidth.measure(mTextPaint, tab.getText(), getScaleLayoutTextSize(),
+                textView.getTypeface(), mSelectedTabTextStyleBold);
+        float available = mTabMaxWidth - textView.getCompoundPaddingLeft() - textView.getCompoundPaddingRight();
+        if (titleWidth <= available || titleWidth <= 0) {
+            return 1;
+        }
+        return Math.max(MIN_TITLE_SHRINK_SCALE, available / titleWidth);
+    }
+
+    /**
+     * 缩放模式下TabView统一使用的字号。
+     */
+    private float getScaleLayoutTextSize() {
+        return Math.max(mSelectedTabTextSize, mDefaultTabTextSize);
+    }
+
+    private float getTabTextScale(boolean isSelected) {
+        float layoutTextSize = getScaleLayoutTextSize();
+        if (layoutTextSize <= 0) {
+            return 1;
+        }
+        return (isSelected ? mSelectedTabTextSize : mDefaultTabTextSize) / layoutTextSize;
+    }
+
+    @VisibleForTesting
+    void setTextScale(View view, float scale) {
+        if (view.getScaleX() != scale || view.getScaleY() != scale) {
+            view.setScaleX(scale);
+            view.setScaleY(scale);
+        }
+    }
+
+    /**
+     * 缩放模式下，根据滑动的偏移量给当前和下一个Tab设置渐变的缩放，只改绘制属性，不会重新布局。
+     */
+    private void updateTabTextScale() {
+        if (!mSelectedTextScale) {
+            return;
+        }
+        int first = mCurrentScrollTab;
+        if (mScaledTabPair != first) {
+            //上一组渐变的Tab恢复到静止时的缩放。
+            resetTabTextScale(mScaledTabPair);
+            resetTabTextScale(mScaledTabPair + 1);
+            mScaledTabPair = first;
+        }
+        float selectedScale = getTabTextScale(true);
+        float defaultScale = getTabTextScale(false);
+        applyTabTextScale(first, selectedScale + (defaultScale - selectedScale) * mPositionOffset);
+        applyTabTextScale(first + 1, defaultScale + (selectedScale - defaultScale) * mPositionOffset);
+    }
+
+    private void resetTabTextScale(int position) {
+        applyTabTextScale(position, getTabTextScale(position == mCurrentTab));
+    }
+
+    private void applyTabTextScale(int position, float scale) {
+        if (position < 0 || position >= mTabs.size()) {
+            return;
+        }
+        View targetView = mTabs.get(position).targetView;
+        if (targetView instanceof TextView) {
+            setTextScale(targetView, scale);
+        }
+    }
+
+    /**
+     * 设置Tab的样式 ：
+     * 1. 选中状态： 字体大小，字体颜色，加粗。
+     * 2. 默认状态：字体大小，字体颜色，加粗。
+     *
+     * @param childView
+     * @param index
+     */
+    private void setStyle(View childView, int index) {
+        if (null == childView || null == mTabContainer) {
+            return;
+        }
+
+        if(childView instanceof TextView) {
+            TextView textView = ((TextView)childView);
+            applyTabIcon(textView, mTabs.get(index), index == mCurrentTab);
+            textView.setGravity(Gravity.CENTER);
+            if (mTabMaxWidth > 0) {
+                textView.setMaxWidth((int) mTabMaxWidth);
+                textView.setMaxLines(1);
+                textView.setEllipsize(TextUtils.TruncateAt.END);
+            }
+            //先设置字号再设置文本，预计算的文本要跟TextView的排版参数一致才能直接使用。
+            setSelectedTabStyle(textView, index == mCurrentTab, mTabs.get(index));
+            setTabText(textView, mTabs.get(index));
+        }
+
+        //如果布局有背景的时候，要清掉，不清掉的时候会遮挡住绘制的指示器。
+        clearBackground(childView);
+    }
+
+    /**
+     * 有预计算好的文本并且排版参数跟TextView一致的话直接使用，省掉主线程的排版，否则正常设置文本。
+     */
+    private void setTabText(TextView textView, Tab tab) {
+        PrecomputedTextCompat precomputedText = tab.precomputedText;
+        if (null != precomputedText && precomputedText.getParams().equals(TextViewCompat.getTextMetricsParams(textView))) {
+            TextViewCompat.setPrecomputedText(textView, precomputedText);
+            return;
+        }
+        textView.setText(tab.getText());
+    }
+
+    public Drawable measureDrawable(Drawable drawable) {
+        if (null != drawable) {
+            drawable.setBounds(0, 0, drawable.getMinimumWidth(), drawable.getMinimumHeight());
+        }
+        return drawable;
+    }
+
+    /**
+     * TabView不允许有背景的，有的话会遮挡下划线的。
+     *
+     * @param tabView
+     */
+    private void clearBackground(View tabView) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            tabView.setBackground(null);
+        }
+    }
+
+    /**
+     * 给tabView默认的LayoutParams,如果子View是默认填充满布局的也就是{@link #mTabFillContainer = true}，
+     * 这时就要设置weight = 1；
+     *
+     * @return
+     */
+    private LinearLayout.LayoutParams getTabLayoutParams() {
+        if (mTabFillContainer) {
+            return new LinearLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT, 1);
+        } else {
             return new LinearLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT);
         }
     }
 
-    private void lear() {
+    private void lear() {
+        if (!haveInit()) {
+            return;
+        }
+        mAttachSuccess = false;
+        mSetupGeneration++;
+        mTabContainer.removeAllViews();
+        if(mViewPager != null) {
+            mViewPager.setAdapter(null);
+        }
+        unbindViewPager2();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mTabFillContainer && !isDrawnMode() && MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+            applyFillTabWidths(MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight());
+        }
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    /**
+     * 充满父布局的时候，用缓存的标题宽度直接算出每个Tab的宽度，剩余的宽度平分，设置成精确的宽度。
+     * 不再用weight，LinearLayout只测量一遍；宽度没变的TabView测量条件也不变，View自己的测量缓存会直接跳过。
+     * 有自定义布局的Tab，或者设置了{@link IHandleTab}、{@link TabAdapter}的时候还是用weight，
+     * 它们可能改了TabView的文本样式或者加了别的内容，按缓存的标题宽度算出来会偏窄。
+     *
+     * @param available 可以给Tab用的宽度。
+     */
+    private void applyFillTabWidths(int available) {
+        if (!haveInit()) {
+            return;
+        }
+        int count = mTabs.size();
+        if (count <= 0 || mTabContainer.getChildCount() != count) {
+            return;
+        }
+        if (null != mHandleTab || null != mTabAdapter) {
+            restoreFillTabWeights();
+            return;
+        }
+        if (mFillTabWidths.length < count) {
+            mFillTabWidths = new int[count];
+        }
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            Tab tab = mTabs.get(i);
+            if (!(tab.targetView instanceof TextView) || null == tab.view || tab.view.getParent() != mTabContainer) {
+                restoreFillTabWeights();
+                return;
+            }
+            int width = getTabTextLayoutWidth(tab, (TextView) tab.targetView, i == mCurrentTab)
+                    + tab.view.getPaddingLeft() + tab.view.getPaddingRight();
+            mFillTabWidths[i] = width;
+            total += width;
+        }
+        int extra = Math.max(0, available - mTabContainer.getPaddingLeft() - mTabContainer.getPaddingRight() - total);
+        boolean changed = false;
+        for (int i = 0; i < count; i++) {
+            int width = mFillTabWidths[i] + extra / count + (i < extra % count ? 1 : 0);
+            LinearLayout.LayoutParams params = (LinearLayout.LayoutParams) mTabs.get(i).view.getLayoutParams();
+            if (params.width != width || params.weight != 0) {
+                params.width = width;
+                params.weight = 0;
+                changed = true;
+            }
+        }
+        if (changed) {
+            mTabContainer.forceLayout();
+        }
+    }
+
+    /**
+     * 之前算过精确宽度的TabView恢复成weight的方式。
+     */
+    private void restoreFillTabWeights() {
+        boolean changed = false;
+        for (int i = 0; i < mTabContainer.getChildCount(); i++) {
+            ViewGroup.LayoutParams params = mTabContainer.getChildAt(i).getLayoutParams();
+            if (params instanceof LinearLayout.LayoutParams && ((LinearLayout.LayoutParams) params).weight == 0) {
+                params.width = ViewGroup.LayoutParams.WRAP_CONTENT;
+                ((LinearLayout.LayoutParams) params).weight = 1;
+                changed = true;
+            }
+        }
+        if (changed) {
+            mTabContainer.forceLayout();
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        mInLayout = true;
+        super.onLayout(changed, l, t, r, b);
+        buildIndicatorGeometry();
+        if (mRestoredScrollX >= 0) {
+            //恢复的位置优先，不再居中。
+            mCenterTabPending = -1;
+            mLastScrollX = mRestoredScrollX;
+            mRestoredScrollX = -1;
+            scrollTo(mLastScrollX, 0);
+        } else if (mCenterTabPending >= 0) {
+            //第一次布局不需要动画。
+            int position = mCenterTabPending;
+            mCenterTabPending = -1;
+            int scrollX = computeCenterScrollX(position);
+            if (scrollX >= 0) {
+                mLastScrollX = scrollX;
+                scrollTo(scrollX, 0);
+            }
+        }
+        mInLayout = false;
+        //TabView的大小变了，下划线也要跟着刷新。
+        invalidateIndicator();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (isVirtualMode()) {
+            //布局过程中不要增删TabView，放到下一帧处理。
+            removeCallbacks(mUpdateVirtualTabsRunnable);
+            post(mUpdateVirtualTabsRunnable);
+        }
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        if (isVirtualMode()) {
+            if (mInLayout) {
+                //布局过程中不要增删TabView，放到下一帧处理。
+                removeCallbacks(mUpdateVirtualTabsRunnable);
+                post(mUpdateVirtualTabsRunnable);
+            } else {
+                updateVirtualTabs();
+            }
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.selectedTab = mCurrentTab;
+        state.scrollX = getScrollX();
+        if (mSaveTabTitles && null == mTabAdapter && !mTabs.isEmpty()) {
+            String[] titles = new String[mTabs.size()];
+            for (int i = 0; i < titles.length; i++) {
+                CharSequence text = mTabs.get(i).getText();
+                titles[i] = null == text ? null : text.toString();
+            }
+            state.titles = titles;
+        }
+        return state;
+    }
+
+    /**
+     * 直接恢复到保存的Tab和滚动位置：不做动画，不回调{@link OnTabSelectedListener}，已经有的TabView不重建。
+     */
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
         if (!haveInit()) {
             return;
         }
-        mAttachSuccess = false;
-        mTabContainer.removeAllViews();
-        if(mViewPager != null) {
-            mViewPager.setAdapter(null);
+        int selected = Math.max(0, savedState.selectedTab);
+        if (mTabs.isEmpty() && null != savedState.titles && savedState.titles.length > 0) {
+            //还没有setupWithViewPager，先按保存的标题创建Tab。
+            mCurrentTab = Math.min(selected, savedState.titles.length - 1);
+            mCurrentScrollTab = mCurrentTab;
+            setupWithViewPager(null, Arrays.asList(savedState.titles));
+        } else if (mTabs.isEmpty()) {
+            //等setupWithViewPager的时候从这个Tab开始。
+            mCurrentTab = selected;
+            mCurrentScrollTab = selected;
+        } else if (selected < mTabs.size()) {
+            cancelIndicatorAnimation();
+            selectedTab(selected, false);
+            mCurrentTab = selected;
+            mCurrentScrollTab = selected;
+            mPositionOffset = 0;
+            invalidateIndicator();
         }
+        mCenterTabPending = -1;
+        mRestoredScrollX = Math.max(0, savedState.scrollX);
+        requestLayout();
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        invalidateIndicatorGeometry();
     }
 
     /**
@@ -604,43 +2802,136 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         if (isInEditMode() || mTabs.size() <= 0) {
             return;
         }
+        long start = null == mMetrics ? 0 : System.nanoTime();
         computeIndicatorRect();
 
-        if (mIndicatorDrawable instanceof GradientDrawable) {
+        if (mIndicatorDrawable instanceof GradientDrawable
+                && (mColoredIndicatorDrawable != mIndicatorDrawable || mColoredIndicatorColor != mIndicatorColor)) {
+            mutateIndicatorDrawable();
             ((GradientDrawable) mIndicatorDrawable).setColor(mIndicatorColor);
+            mColoredIndicatorDrawable = mIndicatorDrawable;
+            mColoredIndicatorColor = mIndicatorColor;
+            invalidateIndicatorView();
+        }
+        drawIndicator(canvas);
+        if (isDrawnMode()) {
+            drawTabTexts(canvas);
+        }
+        if (null != mMetrics) {
+            mMetrics.record(WeTabMetrics.SECTION_DRAW, System.nanoTime() - start);
+        }
+    }
+
+    private void drawIndicator(Canvas canvas) {
+        if (isIndicatorViewMode()) {
+            updateIndicatorView();
+            return;
         }
         mIndicatorDrawable.setBounds(mIndicatorRect);
         mIndicatorDrawable.draw(canvas);
     }
 
+    private boolean isIndicatorViewMode() {
+        return mIndicatorOverlayEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    /**
+     * 把下划线这一帧的位置交给{@link IndicatorView}，第一次调用的时候才把它加到Overlay里。
+     */
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void updateIndicatorView() {
+        if (null == mIndicatorView) {
+            mIndicatorView = new IndicatorView(getContext());
+            mIndicatorView.setDrawable(mIndicatorDrawable);
+            getOverlay().add(mIndicatorView);
+        }
+        mIndicatorView.update(mIndicatorRect, mPositionOffset == 0);
+    }
+
+    private void invalidateIndicatorView() {
+        if (null != mIndicatorView) {
+            mIndicatorView.setDrawable(mIndicatorDrawable);
+        }
+    }
+
+    private void removeIndicatorView() {
+        if (null != mIndicatorView && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            getOverlay().remove(mIndicatorView);
+            mIndicatorView = null;
+        }
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        //手指按下的时候就预加载，不用等点击完成。
+        if (null != mTabPrefetchListener && ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            if (mPagerScrollState == ViewPager.SCROLL_STATE_IDLE) {
+                //新的一次按下，之前按过的Tab可以再次预加载。
+                mPrefetchedTab = -1;
+            }
+            dispatchTabPrefetch(getTabIndexAt((int) ev.getX()));
+        }
+        return super.dispatchTouchEvent(ev);
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (null != mDrawnTabAccessibilityHelper && mDrawnTabAccessibilityHelper.dispatchHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        if (isDrawnMode()) {
+            handleDrawnTabTouch(ev);
+        }
+        return super.onTouchEvent(ev);
+    }
+
     /**
-     * HorizontalScrollView滚到当前tab,并且居中显示
+     * HorizontalScrollView滚到当前tab,并且居中显示。只在手指拖动ViewPager的时候逐帧调用，
+     * 松手之后和点击切换都由{@link #centerTab(int)}一次滚到最终位置。
      */
-    private void scrollToCurrentTab() {
-        if (mTabs.size() <= 0 || mPositionOffset <= 0) {
+    @VisibleForTesting
+    void scrollToCurrentTab() {
+        if (null == mMetrics) {
+            doScrollToCurrentTab();
             return;
         }
-        View childAt = mTabContainer.getChildAt(mCurrentScrollTab);
-        if (null == childAt) {
+        long start = System.nanoTime();
+        doScrollToCurrentTab();
+        mMetrics.record(WeTabMetrics.SECTION_SCROLL_TO_TAB, System.nanoTime() - start);
+    }
+
+    private void doScrollToCurrentTab() {
+        if (mTabs.size() <= 0) {
+            return;
+        }
+        if (!mIndicatorGeometryValid) {
+            buildIndicatorGeometry();
+        }
+        int current = mCurrentScrollTab;
+        if (current < 0 || current >= mIndicatorGeometryCount) {
             return;
         }
+        int tabLeft = mTabLefts[current];
+        int tabRight = mTabRights[current];
 
-        int offset = (int) (mPositionOffset * childAt.getWidth());
-        int newScrollX = childAt.getLeft() + offset;
+        int offset = (int) (mPositionOffset * (tabRight - tabLeft));
+        int newScrollX = tabLeft + offset;
         //布局的中心距离。
         int centerDistance = getWidth() / 2;
 
         int herf = 0;
-        if (mCurrentScrollTab < mTabs.size() - 1) {
-            View nextTab = mTabContainer.getChildAt(mCurrentScrollTab + 1);
-            if (null != nextTab) {
-                float leftDistance = childAt.getLeft() + (nextTab.getLeft() - childAt.getLeft()) * mPositionOffset;
-                float rightDistance = childAt.getRight() + (nextTab.getRight() - childAt.getRight()) * mPositionOffset;
-                herf = (int) ((rightDistance - leftDistance) / 2);
-            }
+        if (current < mIndicatorGeometryCount - 1) {
+            float leftDistance = tabLeft + (mTabLefts[current + 1] - tabLeft) * mPositionOffset;
+            float rightDistance = tabRight + (mTabRights[current + 1] - tabRight) * mPositionOffset;
+            herf = (int) ((rightDistance - leftDistance) / 2);
         }
 
-        if (mCurrentScrollTab > 0 || offset > 0) {
+        if (current > 0 || offset > 0) {
             //这个算的当前的Tab距离中心点的位置
             newScrollX -= centerDistance;
             //后面这个是下一个Tab距离中心点的位置。
@@ -653,54 +2944,88 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
     }
 
     /**
-     * 计算下划线的大小，用Rect来表示。该Rect用来决定Drawable的大小。
+     * 让position的Tab居中：在下一帧算出最终的滚动位置，用一次smoothScrollTo滚过去，
+     * 不再跟着ViewPager惯性滑动的每一个中间位置scrollTo。
+     *
+     * @param position
      */
-    private void computeIndicatorRect() {
-        View childAt = mTabContainer.getChildAt(mCurrentScrollTab);
-        int childCount = mTabContainer.getChildCount();
-        if (null == childAt) {
+    private void centerTab(int position) {
+        mCenterTabPending = position;
+        scheduleScrollFrame();
+    }
+
+    /**
+     * position的Tab居中时的滚动距离，已经限制在可以滚动的范围内；还没有布局的时候返回-1。
+     */
+    private int computeCenterScrollX(int position) {
+        if (!ensureTabGeometry() || position < 0 || position >= mIndicatorGeometryCount) {
+            return -1;
+        }
+        int tabLeft = mTabLefts[position];
+        int tabRight = mTabRights[position];
+        int scrollX = tabLeft + (tabRight - tabLeft) / 2 - getWidth() / 2;
+        int maxScrollX = Math.max(0, mTabContainer.getWidth() - (getWidth() - getPaddingLeft() - getPaddingRight()));
+        return Math.max(0, Math.min(scrollX, maxScrollX));
+    }
+
+    private void smoothScrollToTab(int position) {
+        int scrollX = computeCenterScrollX(position);
+        if (scrollX < 0) {
+            //还没有布局，等布局之后再滚。
+            mCenterTabPending = position;
             return;
         }
-        int left = childAt.getLeft();
-        int right = childAt.getRight();
-        int bottom = childAt.getBottom();
-        if (mIndicatorWidth > 0) {
-            left += getTabInsert(childAt);
-            right -= getTabInsert(childAt);
+        if (getScrollX() == scrollX) {
+            return;
         }
+        //正在往同一个位置滚动的话不再重新开始，HorizontalScrollView在250ms内连续smoothScrollTo会直接跳过去。
+        //不能跟mLastScrollX比，用户自己滑动过的话它就不是当前的位置了。
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        if (scrollX == mSmoothScrollTargetX && now - mSmoothScrollStartTime < SMOOTH_SCROLL_DURATION) {
+            return;
+        }
+        mSmoothScrollTargetX = scrollX;
+        mSmoothScrollStartTime = now;
+        mLastScrollX = scrollX;
+        smoothScrollTo(scrollX, 0);
+    }
 
-        //当前的Tab。计算文本的宽度的时候要排除掉左右的padding。
-        int margin = measureText(childAt, left + (int) mTabPaddingLeft, right - (int) mTabPaddingRight);
-        int marginLeft = handlerPadding(true, margin);
-        int marginRight = handlerPadding(false, margin);
-
-        //滑动中的。
-        if (mCurrentScrollTab < childCount - 1) {
-            View nextChild = mTabContainer.getChildAt(mCurrentScrollTab + 1);
-            if (null == nextChild) {
-                return;
-            }
-            //这个是要移动的距离。
-            float leftDistance = (nextChild.getLeft() - left);
-            float rightDistance = (nextChild.getRight() - right);
-            if (mIndicatorWidth <= 0) {
-                leftDistance *= mPositionOffset;
-                rightDistance *= mPositionOffset;
-                int nextMargin = measureText(nextChild, nextChild.getLeft() + (int) mTabPaddingLeft, nextChild.getRight() - (int) mTabPaddingRight);
-
-                int nextMarginLeft = handlerPadding(true, nextMargin);
-                int nextMarginRight = handlerPadding(false, nextMargin);
+    /**
+     * 计算下划线的大小，用Rect来表示。该Rect用来决定Drawable的大小。
+     * 只是在当前Tab和下一个Tab的几何缓存之间按{@link #mPositionOffset}插值。
+     */
+    @VisibleForTesting
+    void computeIndicatorRect() {
+        if (null == mMetrics) {
+            doComputeIndicatorRect();
+            return;
+        }
+        long start = System.nanoTime();
+        doComputeIndicatorRect();
+        mMetrics.record(WeTabMetrics.SECTION_COMPUTE_INDICATOR, System.nanoTime() - start);
+    }
 
-                marginLeft = (int) ((nextMarginLeft - marginLeft) * mPositionOffset + marginLeft);
-                marginRight = (int) ((nextMarginRight - marginRight) * mPositionOffset + marginRight);
-            } else if (!mIndicatorEqualTabText) {
-                int tabInsert = getTabInsert(nextChild);
-                leftDistance = (leftDistance + tabInsert) * mPositionOffset;
-                rightDistance = (rightDistance - tabInsert) * mPositionOffset;
-            }
+    private void doComputeIndicatorRect() {
+        if (!mIndicatorGeometryValid) {
+            buildIndicatorGeometry();
+        }
+        int current = mCurrentScrollTab;
+        if (current < 0 || current >= mIndicatorGeometryCount) {
+            return;
+        }
+        int left = mIndicatorLefts[current];
+        int right = mIndicatorRights[current];
+        int marginLeft = mIndicatorMarginLefts[current];
+        int marginRight = mIndicatorMarginRights[current];
+        int bottom = mIndicatorBottoms[current];
 
-            left += leftDistance;
-            right += rightDistance;
+        //滑动中的。
+        if (current < mIndicatorGeometryCount - 1) {
+            int next = current + 1;
+            left += (mIndicatorLefts[next] - left) * mPositionOffset;
+            right += (mIndicatorRights[next] - right) * mPositionOffset;
+            marginLeft = (int) ((mIndicatorMarginLefts[next] - marginLeft) * mPositionOffset + marginLeft);
+            marginRight = (int) ((mIndicatorMarginRights[next] - marginRight) * mPositionOffset + marginRight);
         }
         mIndicatorRect.left = left + marginLeft;
         mIndicatorRect.top = bottom - (int) mIndicatorHeight - (int) mIndicatorBottomMargin;
@@ -708,6 +3033,122 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         mIndicatorRect.bottom = bottom - (int) mIndicatorBottomMargin;
     }
 
+    /**
+     * 先算出新的下划线区域，下划线没有移动的话就不重绘。
+     * 移动了就整个重绘：开了硬件加速的时候invalidate(Rect)的区域会被忽略，而且这个方法在API 28已经废弃。
+     */
+    private void invalidateIndicator() {
+        if (!haveInit()) {
+            return;
+        }
+        mLastIndicatorRect.set(mIndicatorRect);
+        computeIndicatorRect();
+        if (mLastIndicatorRect.equals(mIndicatorRect)) {
+            return;
+        }
+        //下划线在单独的View里，只移动它，WeTabLayout本身不用重绘。
+        if (isIndicatorViewMode()) {
+            updateIndicatorView();
+            return;
+        }
+        invalidate();
+    }
+
+    /**
+     * 根据当前的TabView计算每个Tab下划线的左右边界以及左右间距，存到几何缓存中。
+     * 在{@link #onLayout(boolean, int, int, int, int)}之后调用，或者缓存失效之后在绘制前补算一次。
+     */
+    private void buildIndicatorGeometry() {
+        if (!haveInit()) {
+            return;
+        }
+        if (isDrawnMode()) {
+            layoutDrawnTabs();
+            int count = Math.min(mTabOffsets.getCount(), mTabs.size());
+            int bottom = mTabContainer.getHeight();
+            ensureIndicatorGeometryCapacity(count);
+            for (int i = 0; i < count; i++) {
+                Tab tab = mTabs.get(i);
+                int left = mDrawnTabOrigin + mTabOffsets.getStart(i) + mDrawnTabExtra * i;
+                int right = left + mTabOffsets.getWidth(i) + mDrawnTabExtra;
+                float textWidth = getDrawnTitleWidth(tab, i == mCurrentTab);
+                putIndicatorGeometry(i, left, right, getDrawnContentWidth(tab, textWidth), bottom);
+            }
+            mIndicatorGeometryCount = count;
+            mIndicatorGeometryValid = true;
+            return;
+        }
+        if (isVirtualMode() && isVirtualStripAttached()) {
+            int count = mTabOffsets.getCount();
+            int origin = mVirtualLeadingSpace.getLeft();
+            int bottom = mTabContainer.getHeight();
+            ensureIndicatorGeometryCapacity(count);
+            for (int i = 0; i < count; i++) {
+                //虚拟化的TabView宽度是精确的，文本的宽度就是Tab的宽度。
+                putIndicatorGeometry(i, origin + mTabOffsets.getStart(i), origin + mTabOffsets.getEnd(i), mTabOffsets.getWidth(i), bottom);
+            }
+            mIndicatorGeometryCount = count;
+            mIndicatorGeometryValid = true;
+            return;
+        }
+        int childCount = mTabContainer.getChildCount();
+        ensureIndicatorGeometryCapacity(childCount);
+        for (int i = 0; i < childCount; i++) {
+            View childAt = mTabContainer.getChildAt(i);
+            int textWidth = 0;
+            if (mIndicatorEqualTabText && childAt instanceof LinearLayout && ((LinearLayout) childAt).getChildCount() > 0) {
+                View tabView = ((LinearLayout) childAt).getChildAt(0);
+                if (tabView instanceof TextView && i < mTabs.size()) {
+                    textWidth = measureTabTextWidth(mTabs.get(i), (TextView) tabView, i == mCurrentTab);
+                } else {
+                    textWidth = tabView.getWidth();
+                }
+            }
+            putIndicatorGeometry(i, childAt.getLeft(), childAt.getRight(), textWidth, childAt.getBottom());
+        }
+        mIndicatorGeometryCount = childCount;
+        mIndicatorGeometryValid = true;
+    }
+
+    private void putIndicatorGeometry(int i, int tabLeft, int tabRight, int textWidth, int bottom) {
+        int left = tabLeft;
+        int right = tabRight;
+        if (mIndicatorWidth > 0) {
+            int tabInsert = getTabInsert(tabRight - tabLeft);
+            left += tabInsert;
+            right -= tabInsert;
+        }
+        //计算文本的宽度的时候要排除掉左右的padding。
+        int margin = measureText(textWidth, left + (int) mTabPaddingLeft, right - (int) mTabPaddingRight);
+        mTabLefts[i] = tabLeft;
+        mTabRights[i] = tabRight;
+        mIndicatorLefts[i] = left;
+        mIndicatorRights[i] = right;
+        mIndicatorMarginLefts[i] = handlerPadding(true, margin);
+        mIndicatorMarginRights[i] = handlerPadding(false, margin);
+        mIndicatorBottoms[i] = bottom;
+    }
+
+    private void ensureIndicatorGeometryCapacity(int count) {
+        if (mIndicatorLefts.length >= count) {
+            return;
+        }
+        mTabLefts = new int[count];
+        mTabRights = new int[count];
+        mIndicatorLefts = new int[count];
+        mIndicatorRights = new int[count];
+        mIndicatorMarginLefts = new int[count];
+        mIndicatorMarginRights = new int[count];
+        mIndicatorBottoms = new int[count];
+    }
+
+    /**
+     * 影响下划线几何的配置发生变化的时候调用，下次绘制前会重新计算。
+     */
+    private void invalidateIndicatorGeometry() {
+        mIndicatorGeometryValid = false;
+    }
+
     /**
      * 处理TabView的Padding问题。
      *
@@ -733,74 +3174,221 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
 
     }
 
-    private int getTabInsert(View view) {
-        return (view.getWidth() - (int) mIndicatorWidth - (int) mTabPaddingLeft - (int) mTabPaddingRight) / 2;
+    private int getTabInsert(int tabWidth) {
+        return (tabWidth - (int) mIndicatorWidth - (int) mTabPaddingLeft - (int) mTabPaddingRight) / 2;
     }
 
     /**
      * 测量文本的宽度，包括其文本内部的DrawableLeft的图片。
      *
-     * @param childAt
+     * @param tabTextWidth TabView内部文本View的宽度。
      * @param tabLeft
      * @param tabRight
      * @return
      */
-    private int measureText(View childAt, int tabLeft, int tabRight) {
+    private int measureText(int tabTextWidth, int tabLeft, int tabRight) {
         //指示器要跟文本的宽度相等。
         if (mIndicatorEqualTabText) {
-            if(childAt instanceof LinearLayout) {
-                View tabView = ((LinearLayout) childAt).getChildAt(0);
-                if (null != tabView) {
-                    float tabTextWidth = tabView.getWidth();
-                    int tabWidth = tabRight - tabLeft;
-                    return (int) ((tabWidth - tabTextWidth) / 2);
-                }
-            }
+            int tabWidth = tabRight - tabLeft;
+            return (tabWidth - tabTextWidth) / 2;
         }
         return 0;
     }
 
     /**
-     * 如果TabView有DrawableLeft的图片的时候，也要加上图片的宽度。
+     * 文本TabView内容的宽度：缓存的标题宽度加上图标的宽度和左右padding，不依赖TabView是否已经布局。
+     * 缩放模式下按静止时的缩放换算成看到的宽度。
+     */
+    private int measureTabTextWidth(Tab tab, TextView textView, boolean selected) {
+        int width = getTabTextLayoutWidth(tab, textView, selected);
+        if (mSelectedTextScale) {
+            width = (int) (width * getTabTextScale(selected));
+        }
+        return width;
+    }
+
+    /**
+     * 文本TabView布局时的宽度（不算缩放），超过最大宽度的按最大宽度算。
+     */
+    private int getTabTextLayoutWidth(Tab tab, TextView textView, boolean selected) {
+        TitleWidth cache = selected ? tab.selectedTitleWidth : tab.defaultTitleWidth;
+        float titleWidth = cache.measure(mTextPaint, tab.getText(), textView.getTextSize(),
+                textView.getTypeface(), textView.getPaint().isFakeBoldText());
+        int width = getTextViewCompoundDrawables(textView, (int) Math.ceil(titleWidth))
+                + textView.getPaddingLeft() + textView.getPaddingRight();
+        if (mTabMaxWidth > 0) {
+            width = Math.min(width, (int) mTabMaxWidth);
+        }
+        return width;
+    }
+
+    /**
+     * 如果TabView有左右的图片的时候，也要加上图片的宽度和间距；上下的图片比文本宽的时候以图片的宽度为准。
      *
      * @param textView
+     * @param textWidth 标题的宽度。
      * @return
      */
-    private int getTextViewCompoundDrawables(TextView textView) {
+    private int getTextViewCompoundDrawables(TextView textView, int textWidth) {
         Drawable[] compoundDrawables = textView.getCompoundDrawables();
-        if (compoundDrawables.length > 0) {
-            for (int i = 0; i < compoundDrawables.length; i++) {
-                Drawable drawable = compoundDrawables[i];
-                if (null != drawable) {
-                    int width = drawable.getBounds().width();
-                    if (width > 0) {
-                        return width;
-                    }
-                }
-            }
+        int padding = textView.getCompoundDrawablePadding();
+        int width = textWidth;
+        if (null != compoundDrawables[0]) {
+            width += compoundDrawables[0].getBounds().width() + padding;
         }
-        return 0;
+        if (null != compoundDrawables[2]) {
+            width += compoundDrawables[2].getBounds().width() + padding;
+        }
+        if (null != compoundDrawables[1]) {
+            width = Math.max(width, compoundDrawables[1].getBounds().width());
+        }
+        if (null != compoundDrawables[3]) {
+            width = Math.max(width, compoundDrawables[3].getBounds().width());
+        }
+        return width;
     }
 
     @Override
     public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
         this.mCurrentScrollTab = position;
         this.mPositionOffset = positionOffset;
-        scrollToCurrentTab();
-        invalidate();
+        //只在手指拖动的时候判断，松手之后的惯性滑动目标已经确定了。
+        if (null != mTabPrefetchListener && positionOffset > 0
+                && mPagerScrollState == ViewPager.SCROLL_STATE_DRAGGING && mPrefetchFromTab >= 0) {
+            //拖动开始的Tab在左边就是往右滑，否则是往左滑。
+            boolean forward = position >= mPrefetchFromTab;
+            float progress = forward ? positionOffset : 1 - positionOffset;
+            if (progress >= mTabPrefetchThreshold) {
+                dispatchTabPrefetch(forward ? position + 1 : position);
+            }
+        }
+        scheduleScrollFrame();
+    }
+
+    /**
+     * 回调预加载，当前选中的Tab和已经回调过的Tab不再回调。
+     */
+    private void dispatchTabPrefetch(int position) {
+        if (null == mTabPrefetchListener || position < 0 || position >= mTabs.size()
+                || position == mCurrentTab || position == mPrefetchedTab) {
+            return;
+        }
+        mPrefetchedTab = position;
+        mTabPrefetchListener.onTabPrefetch(position);
+    }
+
+    /**
+     * 在下一帧（Choreographer的动画回调）里按最新的{@link #mCurrentScrollTab}和{@link #mPositionOffset}滚动和刷新下划线，
+     * 这一帧里已经安排过的话不再重复安排。
+     */
+    private void scheduleScrollFrame() {
+        if (mScrollFramePending) {
+            return;
+        }
+        mScrollFramePending = true;
+        ViewCompat.postOnAnimation(this, mScrollFrameRunnable);
+    }
+
+    @VisibleForTesting
+    void applyScrollFrame() {
+        if (mCenterTabPending >= 0) {
+            int position = mCenterTabPending;
+            mCenterTabPending = -1;
+            smoothScrollToTab(position);
+        } else if (mPagerScrollState == ViewPager.SCROLL_STATE_DRAGGING) {
+            scrollToCurrentTab();
+        }
+        updateTabTextScale();
+        invalidateIndicator();
+    }
+
+    /**
+     * 没有ViewPager的时候，用动画把{@link #mCurrentScrollTab}和{@link #mPositionOffset}从当前的位置过渡到position，
+     * 跟ViewPager滑动时走同样的下划线插值和滚动。动画中途又切换Tab的话，从动画当前的位置开始新的动画。
+     *
+     * @param position
+     */
+    private void animateToTab(int position) {
+        cancelIndicatorAnimation();
+        centerTab(position);
+        float from = mCurrentScrollTab + mPositionOffset;
+        if (mIndicatorAnimDuration <= 0 || !ViewCompat.isLaidOut(this) || from == position) {
+            mCurrentScrollTab = position;
+            mPositionOffset = 0;
+            scheduleScrollFrame();
+            return;
+        }
+        if (null == mIndicatorAnimator) {
+            mIndicatorAnimator = new ValueAnimator();
+            mIndicatorAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    float value = (Float) animation.getAnimatedValue();
+                    int current = (int) value;
+                    mCurrentScrollTab = current;
+                    mPositionOffset = value - current;
+                    applyScrollFrame();
+                }
+            });
+        }
+        mIndicatorAnimator.setFloatValues(from, position);
+        mIndicatorAnimator.setDuration(mIndicatorAnimDuration);
+        mIndicatorAnimator.setInterpolator(null == mIndicatorAnimInterpolator
+                ? new DecelerateInterpolator() : mIndicatorAnimInterpolator);
+        mIndicatorAnimator.start();
+    }
+
+    /**
+     * 取消下划线动画，停在动画当前的位置。
+     */
+    private void cancelIndicatorAnimation() {
+        if (null != mIndicatorAnimator && mIndicatorAnimator.isRunning()) {
+            mIndicatorAnimator.cancel();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mScrollFrameRunnable);
+        mScrollFramePending = false;
+        if (null != mIndicatorAnimator && mIndicatorAnimator.isRunning()) {
+            mIndicatorAnimator.cancel();
+            mCurrentScrollTab = mCurrentTab;
+            mPositionOffset = 0;
+        }
     }
 
     @Override
     public void onPageSelected(int position) {
+        if (position == mCurrentTab && mRestoredScrollX >= 0) {
+            //刚恢复过状态，ViewPager恢复自己的页面时又回调了同一页，不再重复选中和居中。
+            return;
+        }
         selectedTab(position);
         mCurrentTab = position;
+        //松手之后或者代码切换时，ViewPager会先回调这里告诉最终停在哪一页，直接滚到那一页。
+        if (mPagerScrollState != ViewPager.SCROLL_STATE_DRAGGING) {
+            centerTab(position);
+        }
     }
 
     @Override
     public void onPageScrollStateChanged(int state) {
-        //拖动结束。
+        if (state == ViewPager.SCROLL_STATE_DRAGGING && mPagerScrollState != ViewPager.SCROLL_STATE_DRAGGING) {
+            mPrefetchFromTab = mCurrentTab;
+        }
+        mPagerScrollState = state;
         if (state == ViewPager.SCROLL_STATE_IDLE) {
-
+            mPrefetchedTab = -1;
+            mPrefetchFromTab = -1;
+        }
+        if (state == ViewPager.SCROLL_STATE_SETTLING) {
+            //松手后回弹到原来的页面不会回调onPageSelected，先按当前页居中，换页的话onPageSelected会在同一帧里更新目标。
+            centerTab(mCurrentTab);
+        } else if (state == ViewPager.SCROLL_STATE_IDLE) {
+            //拖动结束，已经在目标位置的话不会再滚动。
+            centerTab(mCurrentTab);
         }
     }
 
@@ -832,6 +3420,105 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         return mCurrentTab;
     }
 
+    /**
+     * 查找x坐标下的Tab，在Tab左边界的前缀和上二分查找，虚拟化和自绘文本模式下不需要TabView也能查到。
+     * 适合拖动手指连续切换Tab的场景。
+     *
+     * @param x 相对于WeTabLayout左边界的坐标，不包含滚动距离，可以直接传MotionEvent.getX()。
+     * @return 不在任何Tab上或者还没有布局的时候返回-1。
+     */
+    public int getTabIndexAt(int x) {
+        if (!ensureTabGeometry()) {
+            return -1;
+        }
+        int containerX = x + getScrollX() - mTabContainer.getLeft();
+        int position = findTabInGeometry(containerX);
+        if (position < 0 || containerX < mTabLefts[position] || containerX >= mTabRights[position]) {
+            return -1;
+        }
+        return position;
+    }
+
+    /**
+     * 获取Tab的区域，坐标系跟{@link #getTabIndexAt(int)}一样，滚出屏幕的Tab坐标可能是负数或者超过宽度。
+     *
+     * @param position
+     * @param outRect  保存结果。
+     * @return 位置不对或者还没有布局的时候返回false，outRect不变。
+     */
+    public boolean getTabBounds(int position, @NonNull Rect outRect) {
+        if (position < 0 || position >= mTabs.size() || !ensureTabGeometry() || position >= mIndicatorGeometryCount) {
+            return false;
+        }
+        int left = mTabContainer.getLeft() - getScrollX();
+        int top = mTabContainer.getTop();
+        outRect.set(left + mTabLefts[position], top, left + mTabRights[position], top + mIndicatorBottoms[position]);
+        return true;
+    }
+
+    /**
+     * 几何缓存失效的话补算一次。几何缓存依赖布局之后的位置，没有布局的时候返回false。
+     */
+    private boolean ensureTabGeometry() {
+        if (!haveInit() || !ViewCompat.isLaidOut(mTabContainer)) {
+            return false;
+        }
+        if (!mIndicatorGeometryValid) {
+            buildIndicatorGeometry();
+        }
+        return mIndicatorGeometryCount > 0;
+    }
+
+    /**
+     * 自绘文本模式下给无障碍服务提供每个Tab的虚拟节点，命中和位置用{@link #getTabIndexAt(int)}和{@link #getTabBounds(int, Rect)}。
+     */
+    private class DrawnTabAccessibilityHelper extends ExploreByTouchHelper {
+
+        private final Rect mBounds = new Rect();
+
+        DrawnTabAccessibilityHelper() {
+            super(WeTabLayout.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int position = getTabIndexAt((int) x);
+            return position >= 0 ? position : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int i = 0; i < mTabs.size(); i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, @NonNull AccessibilityNodeInfoCompat node) {
+            CharSequence text = virtualViewId < mTabs.size() ? mTabs.get(virtualViewId).getText() : null;
+            //节点必须有文本和位置，Tab刚删掉或者还没有布局的时候给空的。
+            node.setText(null == text ? "" : text);
+            if (!getTabBounds(virtualViewId, mBounds)) {
+                mBounds.setEmpty();
+            }
+            node.setBoundsInParent(mBounds);
+            node.setClassName(TextView.class.getName());
+            node.setClickable(true);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            node.setSelected(virtualViewId == mCurrentTab);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, @Nullable Bundle arguments) {
+            if (action != AccessibilityNodeInfoCompat.ACTION_CLICK || virtualViewId >= mTabs.size()) {
+                return false;
+            }
+            onTabClick(virtualViewId);
+            sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+            return true;
+        }
+    }
+
     public static class Tab {
         public WeTabLayout parent;
         private CharSequence text;
@@ -840,12 +3527,60 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         public View targetView;
         private int position = -1;
 
+        /**
+         * 标题在默认和选中状态下测量出来的宽度。
+         */
+        final TitleWidth defaultTitleWidth = new TitleWidth();
+        final TitleWidth selectedTitleWidth = new TitleWidth();
+
+        /**
+         * 缩小标题时按较大的字号测量的宽度。
+         */
+        final TitleWidth fitTitleWidth = new TitleWidth();
+
+        /**
+         * 异步设置时在后台线程排版好的标题，标题改了就作废。
+         */
+        PrecomputedTextCompat precomputedText;
+
+        /**
+         * 虚拟化模式下记录的Tab宽度是否是测量出来的，false表示还是预估的宽度。
+         */
+        boolean widthMeasured;
+
+        /**
+         * Tab的图标，iconFromTitle表示是按标题从{@link WeTabLayout#addTabDrawable(WeTabDrawable)}里找到的，标题改了要重新找。
+         */
+        IWeTabDrawable icon;
+        boolean iconFromTitle;
+
         public CharSequence getText() {
             return text;
         }
 
         public Tab setText(CharSequence text) {
             this.text = text;
+            this.precomputedText = null;
+            if (iconFromTitle) {
+                icon = null;
+                iconFromTitle = false;
+            }
+            return this;
+        }
+
+        public IWeTabDrawable getIcon() {
+            return icon;
+        }
+
+        /**
+         * 设置Tab的图标，已经添加到WeTabLayout的Tab请用{@link WeTabLayout#setTabDrawable(int, IWeTabDrawable)}，才会刷新TabView。
+         *
+         * @param icon
+         * @return
+         */
+        public Tab setIcon(IWeTabDrawable icon) {
+            this.icon = icon;
+            this.iconFromTitle = false;
             return this;
         }
 
@@ -864,6 +3599,9 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         }
 
         public int getPosition() {
+            if (null != parent) {
+                parent.ensureTabPositions();
+            }
             return position;
         }
 
@@ -872,4 +3610,45 @@ public class WeTabLayout extends HorizontalScrollView implements ViewPager.OnPag
         }
     }
 
+    /**
+     * 保存的状态：选中的Tab、滚动的位置，以及可选的标题。
+     */
+    static class SavedState extends BaseSavedState {
+
+        int selectedTab;
+        int scrollX;
+        String[] titles;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(Parcel source) {
+            super(source);
+            selectedTab = source.readInt();
+            scrollX = source.readInt();
+            titles = source.createStringArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeInt(selectedTab);
+            dest.writeInt(scrollX);
+            dest.writeStringArray(titles);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
 }
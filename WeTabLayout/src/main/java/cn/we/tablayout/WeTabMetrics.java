@@ -0,0 +1,129 @@
+package cn.we.tablayout;
+
+import java.util.Arrays;
+
+/**
+ * Created to : WeTabLayout的耗时和次数统计，通过{@link WeTabLayout#setMetrics(WeTabMetrics)}开启，
+ * 没有设置的时候WeTabLayout不会做任何统计。
+ * 每一项耗时保留最近的若干次采样，可以取p50、p99等分位数；只能在主线程使用。
+ */
+public class WeTabMetrics {
+
+    /**
+     * 计算下划线位置的耗时。
+     */
+    public static final int SECTION_COMPUTE_INDICATOR = 0;
+    /**
+     * 滑动时让当前Tab居中的耗时。
+     */
+    public static final int SECTION_SCROLL_TO_TAB = 1;
+    /**
+     * onDraw的耗时。
+     */
+    public static final int SECTION_DRAW = 2;
+    /**
+     * 创建所有TabView的耗时。
+     */
+    public static final int SECTION_CREATE_TABS = 3;
+
+    private static final int SECTION_COUNT = 4;
+
+    private static final int DEFAULT_SAMPLE_SIZE = 256;
+
+    private final long[][] mSamples;
+    private final int[] mSampleIndex = new int[SECTION_COUNT];
+    private final long[] mSampleTotal = new long[SECTION_COUNT];
+
+    /**
+     * 选中切换时重新设置样式的TabView个数。
+     */
+    private long mRestyleCount;
+
+    /**
+     * 因为文字大小变化而触发重新布局的次数。
+     */
+    private long mTextSizeLayoutCount;
+
+    public WeTabMetrics() {
+        this(DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * @param sampleSize 每一项保留最近多少次的耗时。
+     */
+    public WeTabMetrics(int sampleSize) {
+        mSamples = new long[SECTION_COUNT][Math.max(1, sampleSize)];
+    }
+
+    void record(int section, long nanos) {
+        long[] samples = mSamples[section];
+        samples[mSampleIndex[section]] = nanos;
+        mSampleIndex[section] = (mSampleIndex[section] + 1) % samples.length;
+        mSampleTotal[section]++;
+    }
+
+    void addRestyle() {
+        mRestyleCount++;
+    }
+
+    void addTextSizeLayout() {
+        mTextSizeLayoutCount++;
+    }
+
+    /**
+     * 某一项一共统计了多少次。
+     *
+     * @param section {@link #SECTION_COMPUTE_INDICATOR}等。
+     * @return
+     */
+    public long getCount(int section) {
+        return mSampleTotal[section];
+    }
+
+    /**
+     * 最近若干次采样中的分位数耗时，单位纳秒，没有采样的时候返回0。
+     *
+     * @param section    {@link #SECTION_COMPUTE_INDICATOR}等。
+     * @param percentile 0到100之间，比如50、99。
+     * @return
+     */
+    public long getPercentile(int section, float percentile) {
+        long[] samples = mSamples[section];
+        int size = (int) Math.min(mSampleTotal[section], samples.length);
+        if (size <= 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100f * size) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    public long getP50(int section) {
+        return getPercentile(section, 50);
+    }
+
+    public long getP99(int section) {
+        return getPercentile(section, 99);
+    }
+
+    public long getRestyleCount() {
+        return mRestyleCount;
+    }
+
+    public long getTextSizeLayoutCount() {
+        return mTextSizeLayoutCount;
+    }
+
+    /**
+     * 清空所有的统计。
+     */
+    public void reset() {
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            mSampleIndex[i] = 0;
+            mSampleTotal[i] = 0;
+        }
+        mRestyleCount = 0;
+        mTextSizeLayoutCount = 0;
+    }
+}
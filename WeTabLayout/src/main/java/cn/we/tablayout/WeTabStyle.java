@@ -0,0 +1,429 @@
+package cn.we.tablayout;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+
+import androidx.annotation.StyleRes;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Created to : 不可变的WeTabLayout样式，解析一次之后可以给多个WeTabLayout共用，
+ * 通过{@link WeTabLayout#setTabStyle(WeTabStyle)}设置，省掉每个实例重复解析属性。
+ * 下划线的Drawable也是共享的，每个WeTabLayout只拿到共享ConstantState的Drawable，
+ * 要修改的时候才调用mutate()复制一份。
+ */
+public final class WeTabStyle {
+
+    final int indicatorColor;
+    final float indicatorHeight;
+    final float indicatorWidth;
+    final float indicatorBottomMargin;
+    final boolean indicatorEqualTabText;
+    final float indicatorCorner;
+    final int indicatorAnimDuration;
+    final boolean indicatorOverlayEnabled;
+    final float tabPaddingLeft;
+    final float tabPaddingRight;
+    final float tabPaddingTop;
+    final float tabPaddingBottom;
+    final int selectedTabTextColor;
+    final int defaultTabTextColor;
+    final float defaultTabTextSize;
+    final float selectedTabTextSize;
+    final boolean selectedTabTextStyleBold;
+    final boolean tabFillContainer;
+    final boolean selectedTextScale;
+    final boolean tabTextDrawn;
+    final boolean tabVirtualized;
+    final int virtualTabBuffer;
+    final float tabMaxWidth;
+    final int tabTitleOverflow;
+
+    /**
+     * 自定义的下划线，null的话用{@link #indicatorColor}和{@link #indicatorCorner}生成GradientDrawable。
+     */
+    private final Drawable mIndicatorDrawable;
+
+    /**
+     * 所有实例共用的下划线原型，第一次用到的时候才创建。
+     */
+    private Drawable mIndicatorPrototype;
+
+    /**
+     * 从style资源解析过的样式，只缓存最近一个主题下的。主题或者配置变了就清空，style里的尺寸和主题属性要重新解析。
+     */
+    private static final SparseArray<WeTabStyle> sCachedStyles = new SparseArray<>();
+    private static WeakReference<Resources.Theme> sCachedTheme;
+    private static Configuration sCachedConfiguration;
+
+    private WeTabStyle(Builder builder) {
+        this.indicatorColor = builder.indicatorColor;
+        this.indicatorHeight = builder.indicatorHeight;
+        this.indicatorWidth = builder.indicatorEqualTabText ? 0 : builder.indicatorWidth;
+        this.indicatorBottomMargin = builder.indicatorBottomMargin;
+        this.indicatorEqualTabText = builder.indicatorEqualTabText;
+        this.indicatorCorner = builder.indicatorCorner;
+        this.indicatorAnimDuration = builder.indicatorAnimDuration;
+        this.indicatorOverlayEnabled = builder.indicatorOverlayEnabled;
+        this.tabPaddingLeft = builder.tabPaddingLeft;
+        this.tabPaddingRight = builder.tabPaddingRight;
+        this.tabPaddingTop = builder.tabPaddingTop;
+        this.tabPaddingBottom = builder.tabPaddingBottom;
+        this.selectedTabTextColor = builder.selectedTabTextColor;
+        this.defaultTabTextColor = builder.defaultTabTextColor;
+        this.defaultTabTextSize = builder.defaultTabTextSize;
+        this.selectedTabTextSize = builder.selectedTabTextSize;
+        this.selectedTabTextStyleBold = builder.selectedTabTextStyleBold;
+        this.tabFillContainer = builder.tabFillContainer;
+        this.selectedTextScale = builder.selectedTextScale;
+        this.tabTextDrawn = builder.tabTextDrawn;
+        this.tabVirtualized = builder.tabVirtualized;
+        this.virtualTabBuffer = builder.virtualTabBuffer;
+        this.tabMaxWidth = builder.tabMaxWidth;
+        this.tabTitleOverflow = builder.tabTitleOverflow;
+        this.mIndicatorDrawable = builder.indicatorDrawable;
+    }
+
+    /**
+     * 从xml的属性解析样式。
+     *
+     * @param context
+     * @param attrs
+     * @return
+     */
+    public static WeTabStyle from(Context context, AttributeSet attrs) {
+        return from(context, context.obtainStyledAttributes(attrs, R.styleable.WeTabLayout));
+    }
+
+    /**
+     * 从style资源解析样式，style里使用的是WeTabLayout的属性。
+     *
+     * @param context
+     * @param styleRes
+     * @return
+     */
+    public static WeTabStyle from(Context context, @StyleRes int styleRes) {
+        return from(context, context.obtainStyledAttributes(styleRes, R.styleable.WeTabLayout));
+    }
+
+    /**
+     * xml里只通过style="@style/xxx"设置属性的时候，同一个主题下用同一个style的WeTabLayout共用一份解析结果，
+     * 列表里大量创建的时候不用每个都解析一遍。
+     *
+     * @param context
+     * @param attrs
+     * @return 没有设置style，或者标签上直接写了WeTabLayout的属性时返回null，需要单独解析。
+     */
+    static WeTabStyle fromCachedStyle(Context context, AttributeSet attrs) {
+        if (null == attrs) {
+            return null;
+        }
+        int styleRes = attrs.getStyleAttribute();
+        if (styleRes == 0 || hasTabAttribute(attrs)) {
+            return null;
+        }
+        Resources.Theme theme = context.getTheme();
+        Configuration configuration = context.getResources().getConfiguration();
+        synchronized (sCachedStyles) {
+            if (null == sCachedTheme || sCachedTheme.get() != theme || !configuration.equals(sCachedConfiguration)) {
+                sCachedStyles.clear();
+                sCachedTheme = new WeakReference<>(theme);
+                sCachedConfiguration = new Configuration(configuration);
+            }
+            WeTabStyle style = sCachedStyles.get(styleRes);
+            if (null == style) {
+                style = from(context, styleRes);
+                sCachedStyles.put(styleRes, style);
+            }
+            return style;
+        }
+    }
+
+    private static boolean hasTabAttribute(AttributeSet attrs) {
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            int nameRes = attrs.getAttributeNameResource(i);
+            for (int attr : R.styleable.WeTabLayout) {
+                if (attr == nameRes) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static WeTabStyle from(Context context, TypedArray array) {
+        Builder builder = new Builder(context);
+        try {
+            builder.indicatorColor = array.getColor(R.styleable.WeTabLayout_wtl_indicator_color, Color.BLACK);
+            builder.indicatorHeight = array.getDimension(R.styleable.WeTabLayout_wtl_indicator_height, 1);
+            builder.indicatorWidth = array.getDimension(R.styleable.WeTabLayout_wtl_indicator_width, 0);
+            builder.indicatorBottomMargin = array.getDimension(R.styleable.WeTabLayout_wtl_indicator_margin_bottom, 0);
+            builder.indicatorEqualTabText = array.getBoolean(R.styleable.WeTabLayout_wtl_indicator_width_equal_title, false);
+            builder.indicatorCorner = array.getDimension(R.styleable.WeTabLayout_wtl_indicator_corner_radius, 0);
+            builder.indicatorAnimDuration = array.getInt(R.styleable.WeTabLayout_wtl_indicator_anim_duration, builder.indicatorAnimDuration);
+            builder.indicatorOverlayEnabled = array.getBoolean(R.styleable.WeTabLayout_wtl_indicator_overlay, false);
+            builder.tabPaddingLeft = array.getDimension(R.styleable.WeTabLayout_wtl_tab_padding_left, 0);
+            builder.tabPaddingRight = array.getDimension(R.styleable.WeTabLayout_wtl_tab_padding_right, 0);
+            builder.tabPaddingTop = array.getDimension(R.styleable.WeTabLayout_wtl_tab_padding_top, 0);
+            builder.tabPaddingBottom = array.getDimension(R.styleable.WeTabLayout_wtl_tab_padding_bottom, 0);
+            builder.selectedTabTextColor = array.getColor(R.styleable.WeTabLayout_wtl_selected_text_color, Color.BLACK);
+            builder.defaultTabTextColor = array.getColor(R.styleable.WeTabLayout_wtl_default_text_color, Color.GRAY);
+            builder.defaultTabTextSize = array.getDimension(R.styleable.WeTabLayout_wtl_default_text_size, builder.defaultTabTextSize);
+            builder.selectedTabTextSize = array.getDimension(R.styleable.WeTabLayout_wtl_selected_text_size, builder.selectedTabTextSize);
+            builder.selectedTabTextStyleBold = array.getBoolean(R.styleable.WeTabLayout_wtl_selected_text_bold, false);
+            builder.tabFillContainer = array.getBoolean(R.styleable.WeTabLayout_wtl_tab_fill_container, false);
+            builder.selectedTextScale = array.getBoolean(R.styleable.WeTabLayout_wtl_selected_text_scale, false);
+            builder.tabTextDrawn = array.getBoolean(R.styleable.WeTabLayout_wtl_tab_draw_text, false);
+            builder.tabVirtualized = array.getBoolean(R.styleable.WeTabLayout_wtl_tab_virtualized, false);
+            builder.virtualTabBuffer = array.getInt(R.styleable.WeTabLayout_wtl_virtual_tab_buffer, builder.virtualTabBuffer);
+            builder.tabMaxWidth = array.getDimension(R.styleable.WeTabLayout_wtl_tab_max_width, 0);
+            builder.tabTitleOverflow = array.getInt(R.styleable.WeTabLayout_wtl_tab_title_overflow, WeTabLayout.TITLE_OVERFLOW_ELLIPSIZE);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            array.recycle();
+        }
+        return builder.build();
+    }
+
+    /**
+     * 在当前样式的基础上修改。
+     *
+     * @param context
+     * @return
+     */
+    public Builder newBuilder(Context context) {
+        return new Builder(context, this);
+    }
+
+    /**
+     * 给某个WeTabLayout用的下划线，跟其他实例共享ConstantState，修改之前要先mutate()。
+     */
+    Drawable newIndicatorDrawable(Resources resources) {
+        if (null == mIndicatorPrototype) {
+            if (null != mIndicatorDrawable) {
+                mIndicatorPrototype = mIndicatorDrawable;
+            } else {
+                GradientDrawable drawable = new GradientDrawable();
+                drawable.setColor(indicatorColor);
+                if (indicatorCorner > 0) {
+                    drawable.setCornerRadius(indicatorCorner);
+                }
+                mIndicatorPrototype = drawable;
+            }
+        }
+        //自定义的下划线在Builder里已经检查过有ConstantState。
+        return mIndicatorPrototype.getConstantState().newDrawable(resources);
+    }
+
+    /**
+     * 下划线的颜色是不是已经设置到{@link #newIndicatorDrawable(Resources)}返回的Drawable上了。
+     */
+    boolean isIndicatorColorApplied() {
+        return null == mIndicatorDrawable;
+    }
+
+    public static final class Builder {
+        private int indicatorColor = Color.BLACK;
+        private float indicatorHeight = 1;
+        private float indicatorWidth;
+        private float indicatorBottomMargin;
+        private boolean indicatorEqualTabText;
+        private float indicatorCorner;
+        private int indicatorAnimDuration = 200;
+        private boolean indicatorOverlayEnabled;
+        private float tabPaddingLeft;
+        private float tabPaddingRight;
+        private float tabPaddingTop;
+        private float tabPaddingBottom;
+        private int selectedTabTextColor = Color.BLACK;
+        private int defaultTabTextColor = Color.GRAY;
+        private float defaultTabTextSize;
+        private float selectedTabTextSize;
+        private boolean selectedTabTextStyleBold;
+        private boolean tabFillContainer;
+        private boolean selectedTextScale;
+        private boolean tabTextDrawn;
+        private boolean tabVirtualized;
+        private int virtualTabBuffer = 2;
+        private float tabMaxWidth;
+        private int tabTitleOverflow = WeTabLayout.TITLE_OVERFLOW_ELLIPSIZE;
+        private Drawable indicatorDrawable;
+
+        public Builder(Context context) {
+            float scaledDensity = context.getResources().getDisplayMetrics().scaledDensity;
+            defaultTabTextSize = (int) (scaledDensity * 12 + 0.5f);
+            selectedTabTextSize = (int) (scaledDensity * 14 + 0.5f);
+        }
+
+        private Builder(Context context, WeTabStyle style) {
+            this(context);
+            indicatorColor = style.indicatorColor;
+            indicatorHeight = style.indicatorHeight;
+            indicatorWidth = style.indicatorWidth;
+            indicatorBottomMargin = style.indicatorBottomMargin;
+            indicatorEqualTabText = style.indicatorEqualTabText;
+            indicatorCorner = style.indicatorCorner;
+            indicatorAnimDuration = style.indicatorAnimDuration;
+            indicatorOverlayEnabled = style.indicatorOverlayEnabled;
+            tabPaddingLeft = style.tabPaddingLeft;
+            tabPaddingRight = style.tabPaddingRight;
+            tabPaddingTop = style.tabPaddingTop;
+            tabPaddingBottom = style.tabPaddingBottom;
+            selectedTabTextColor = style.selectedTabTextColor;
+            defaultTabTextColor = style.defaultTabTextColor;
+            defaultTabTextSize = style.defaultTabTextSize;
+            selectedTabTextSize = style.selectedTabTextSize;
+            selectedTabTextStyleBold = style.selectedTabTextStyleBold;
+            tabFillContainer = style.tabFillContainer;
+            selectedTextScale = style.selectedTextScale;
+            tabTextDrawn = style.tabTextDrawn;
+            tabVirtualized = style.tabVirtualized;
+            virtualTabBuffer = style.virtualTabBuffer;
+            tabMaxWidth = style.tabMaxWidth;
+            tabTitleOverflow = style.tabTitleOverflow;
+            indicatorDrawable = style.mIndicatorDrawable;
+        }
+
+        public Builder setIndicatorColor(int color) {
+            this.indicatorColor = color;
+            return this;
+        }
+
+        public Builder setIndicatorHeight(float height) {
+            this.indicatorHeight = height;
+            return this;
+        }
+
+        public Builder setIndicatorWidth(float width) {
+            this.indicatorWidth = width;
+            return this;
+        }
+
+        public Builder setIndicatorBottomMargin(float margin) {
+            this.indicatorBottomMargin = margin;
+            return this;
+        }
+
+        public Builder setIndicatorEqualTabText(boolean equal) {
+            this.indicatorEqualTabText = equal;
+            return this;
+        }
+
+        public Builder setIndicatorCorner(float corner) {
+            this.indicatorCorner = corner;
+            return this;
+        }
+
+        public Builder setIndicatorAnimDuration(int duration) {
+            this.indicatorAnimDuration = Math.max(0, duration);
+            return this;
+        }
+
+        public Builder setIndicatorOverlayEnabled(boolean enabled) {
+            this.indicatorOverlayEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * 自定义的下划线，所有使用这个样式的WeTabLayout共享它的ConstantState，各自用newDrawable()创建自己的实例。
+         * 没有ConstantState的Drawable没法复制，mutate()也只会返回同一个对象，多个WeTabLayout会改到同一个实例，所以不支持。
+         *
+         * @param drawable null表示用indicatorColor的纯色下划线。
+         * @throws IllegalArgumentException drawable没有ConstantState。
+         */
+        public Builder setIndicatorDrawable(Drawable drawable) {
+            if (null != drawable && null == drawable.getConstantState()) {
+                throw new IllegalArgumentException("Indicator drawable must have a ConstantState to be shared.");
+            }
+            this.indicatorDrawable = drawable;
+            return this;
+        }
+
+        public Builder setTabPadding(float left, float top, float right, float bottom) {
+            this.tabPaddingLeft = left;
+            this.tabPaddingTop = top;
+            this.tabPaddingRight = right;
+            this.tabPaddingBottom = bottom;
+            return this;
+        }
+
+        public Builder setSelectedTabTextColor(int color) {
+            this.selectedTabTextColor = color;
+            return this;
+        }
+
+        public Builder setDefaultTabTextColor(int color) {
+            this.defaultTabTextColor = color;
+            return this;
+        }
+
+        public Builder setSelectedTabTextSize(float size) {
+            this.selectedTabTextSize = size;
+            return this;
+        }
+
+        public Builder setDefaultTabTextSize(float size) {
+            this.defaultTabTextSize = size;
+            return this;
+        }
+
+        public Builder setSelectedTabTextBold(boolean bold) {
+            this.selectedTabTextStyleBold = bold;
+            return this;
+        }
+
+        public Builder setTabFillContainer(boolean fill) {
+            this.tabFillContainer = fill;
+            return this;
+        }
+
+        public Builder setSelectedTextScale(boolean scale) {
+            this.selectedTextScale = scale;
+            return this;
+        }
+
+        public Builder setTabTextDrawn(boolean drawn) {
+            this.tabTextDrawn = drawn;
+            return this;
+        }
+
+        public Builder setTabVirtualized(boolean virtualized) {
+            this.tabVirtualized = virtualized;
+            return this;
+        }
+
+        public Builder setVirtualTabBuffer(int buffer) {
+            this.virtualTabBuffer = Math.max(0, buffer);
+            return this;
+        }
+
+        /**
+         * 自绘文本模式不支持最大宽度。
+         */
+        public Builder setTabMaxWidth(float width) {
+            this.tabMaxWidth = Math.max(0, width);
+            return this;
+        }
+
+        /**
+         * @param overflow {@link WeTabLayout#TITLE_OVERFLOW_ELLIPSIZE}或者{@link WeTabLayout#TITLE_OVERFLOW_SHRINK}。
+         */
+        public Builder setTabTitleOverflow(int overflow) {
+            this.tabTitleOverflow = overflow;
+            return this;
+        }
+
+        public WeTabStyle build() {
+            return new WeTabStyle(this);
+        }
+    }
+}
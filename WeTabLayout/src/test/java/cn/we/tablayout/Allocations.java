@@ -0,0 +1,58 @@
+package cn.we.tablayout;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Created to : 统计当前线程分配的字节数。统计本身也可能分配（JDK 8每次读都会创建数组），
+ * 记下读了几次，{@link #bytesSince(long, long)}把这部分扣掉，嵌套统计的时候也只扣一次。
+ */
+final class Allocations {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long sReads;
+
+    /**
+     * 读一次分配的字节数。
+     */
+    private static long sOverhead;
+
+    private Allocations() {
+    }
+
+    static long allocatedBytes() {
+        sReads++;
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 到目前为止读了几次，在{@link #allocatedBytes()}之后调用，跟它的结果一起传给{@link #bytesSince(long, long)}。
+     */
+    static long reads() {
+        return sReads;
+    }
+
+    /**
+     * 从start到现在分配的字节数，不包括这期间统计本身的分配。
+     *
+     * @param start      开始时{@link #allocatedBytes()}的结果。
+     * @param startReads 开始时{@link #reads()}的结果。
+     */
+    static long bytesSince(long start, long startReads) {
+        long end = allocatedBytes();
+        return end - start - (sReads - startReads) * sOverhead;
+    }
+
+    /**
+     * 量出读一次的分配，预热之后调用，取几次里最小的。
+     */
+    static void calibrate() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long start = allocatedBytes();
+            overhead = Math.min(overhead, allocatedBytes() - start);
+        }
+        sOverhead = overhead;
+    }
+}
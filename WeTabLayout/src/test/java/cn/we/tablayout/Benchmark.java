@@ -0,0 +1,175 @@
+package cn.we.tablayout;
+
+import org.junit.Assume;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created to : 简单的基准测试：先预热，再跑几轮取最好的一轮，统计ns/op和B/op。
+ * 分配的字节数用{@link Allocations}统计，传入{@link TestTabLayout}的话扣掉测试环境里scrollTo、invalidate等框架方法自己的分配。
+ * 耗时较长，默认不运行，用{@code ./gradlew :WeTabLayout:testDebugUnitTest -Pbenchmark}单独运行，
+ * 结果写到build/reports/benchmarks下。
+ */
+final class Benchmark {
+
+    private static final long WARM_UP_NANOS = 500_000_000L;
+    private static final long ROUND_NANOS = 100_000_000L;
+    private static final int ROUNDS = 5;
+
+    /**
+     * 由构建脚本在-Pbenchmark的时候设置。
+     */
+    private static final String ENABLED_PROPERTY = "wetab.benchmark";
+    private static final String REPORT_DIR_PROPERTY = "wetab.benchmark.reportDir";
+
+    /**
+     * 还没有写到报告里的结果。
+     */
+    private static final List<Result> sResults = new ArrayList<>();
+
+    /**
+     * 防止JIT把没用到结果的操作优化掉。
+     */
+    private static volatile int sSink;
+
+    interface Operation {
+        /**
+         * @param i 第几次调用，用来变换参数。
+         * @return 任意结果，会被累加起来。
+         */
+        int run(int i);
+    }
+
+    static final class Result {
+        final String name;
+        final int tabCount;
+        final double nsPerOp;
+        final double bytesPerOp;
+
+        private Result(String name, int tabCount, double nsPerOp, double bytesPerOp) {
+            this.name = name;
+            this.tabCount = tabCount;
+            this.nsPerOp = nsPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        /**
+         * 分配超出预算就失败。
+         *
+         * @param maxBytesPerOp
+         */
+        Result assertBytesPerOp(double maxBytesPerOp) {
+            assertTrue(this + " exceeds budget of " + maxBytesPerOp + " B/op", bytesPerOp <= maxBytesPerOp);
+            return this;
+        }
+
+        /**
+         * 分配不能超过基准结果的ratio倍。
+         *
+         * @param baseline 同样环境下测出来的参照。
+         * @param ratio
+         */
+        Result assertBytesPerOp(Result baseline, double ratio) {
+            assertTrue(this + " exceeds " + ratio + "x of " + baseline, bytesPerOp <= baseline.bytesPerOp * ratio);
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-22s %4d tabs %12.1f ns/op %10.1f B/op",
+                    name, tabCount, nsPerOp, bytesPerOp);
+        }
+    }
+
+    private Benchmark() {
+    }
+
+    /**
+     * 没有开启的时候跳过当前的基准测试。
+     */
+    static void assumeEnabled() {
+        Assume.assumeTrue("benchmarks run with -Pbenchmark", Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    /**
+     * 把之前的结果写到报告目录下的{@code <测试类名>.txt}。
+     *
+     * @param testClass
+     */
+    static void writeReport(Class<?> testClass) throws IOException {
+        List<Result> results;
+        synchronized (sResults) {
+            results = new ArrayList<>(sResults);
+            sResults.clear();
+        }
+        if (results.isEmpty()) {
+            return;
+        }
+        File dir = new File(System.getProperty(REPORT_DIR_PROPERTY, "build/reports/benchmarks"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        Writer writer = new FileWriter(new File(dir, testClass.getSimpleName() + ".txt"));
+        try {
+            for (Result result : results) {
+                writer.write(result + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    static Result run(String name, int tabCount, Operation operation) {
+        return run(name, tabCount, null, operation);
+    }
+
+    /**
+     * @param layout 被测的TabLayout，不为空的时候扣掉它scrollTo、invalidate等框架方法里测试环境的分配。
+     */
+    static Result run(String name, int tabCount, TestTabLayout layout, Operation operation) {
+        int sink = 0;
+        int i = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < WARM_UP_NANOS) {
+            sink += operation.run(i++);
+        }
+        //按预热时的速度决定每一轮跑多少次。
+        int opsPerRound = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (long) i * ROUND_NANOS / WARM_UP_NANOS));
+        double bestNs = Double.MAX_VALUE;
+        double bestBytes = Double.MAX_VALUE;
+        Allocations.calibrate();
+        for (int round = 0; round < ROUNDS; round++) {
+            if (null != layout) {
+                layout.resetMeters();
+            }
+            long startBytes = Allocations.allocatedBytes();
+            long startReads = Allocations.reads();
+            long startNanos = System.nanoTime();
+            for (int n = 0; n < opsPerRound; n++) {
+                sink += operation.run(i++);
+            }
+            long nanos = System.nanoTime() - startNanos;
+            long bytes = Allocations.bytesSince(startBytes, startReads);
+            if (null != layout) {
+                bytes -= layout.mScrollBytes + layout.mFrameworkBytes;
+            }
+            //JIT和测试环境偶尔会在某一轮里分配一点，取最好的一轮。
+            bestNs = Math.min(bestNs, nanos / (double) opsPerRound);
+            bestBytes = Math.min(bestBytes, Math.max(0, bytes) / (double) opsPerRound);
+        }
+        sSink = sink;
+        Result result = new Result(name, tabCount, bestNs, bestBytes);
+        synchronized (sResults) {
+            sResults.add(result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package cn.we.tablayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Created to : 什么都不画的Canvas，避免把测试环境里Canvas自己的开销算进去。
+ */
+class NoOpCanvas extends Canvas {
+
+    @Override
+    public int save() {
+        return 1;
+    }
+
+    @Override
+    public void restore() {
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+    }
+
+    @Override
+    public void scale(float sx, float sy) {
+    }
+
+    @Override
+    public boolean clipRect(Rect rect) {
+        return true;
+    }
+
+    @Override
+    public boolean clipRect(RectF rect) {
+        return true;
+    }
+
+    @Override
+    public boolean clipRect(int left, int top, int right, int bottom) {
+        return true;
+    }
+
+    @Override
+    public boolean clipRect(float left, float top, float right, float bottom) {
+        return true;
+    }
+
+    @Override
+    public void drawRect(Rect r, Paint paint) {
+    }
+
+    @Override
+    public void drawRect(RectF rect, Paint paint) {
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+    }
+
+    @Override
+    public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom, float rx, float ry, Paint paint) {
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, Paint paint) {
+    }
+
+    @Override
+    public void drawText(String text, int start, int end, float x, float y, Paint paint) {
+    }
+
+    @Override
+    public void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+    }
+}
@@ -0,0 +1,150 @@
+package cn.we.tablayout;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created to : {@link TabDiff}的测试，除了检查具体的配对结果，每个用例都会检查差分结果本身是否自洽。
+ */
+public class TabDiffTest {
+
+    private static final int NO = TabDiff.NO_POSITION;
+
+    @Test
+    public void insert() {
+        TabDiff diff = diff(list("A", "B", "C"), list("A", "X", "B", "C"));
+        assertArrayEquals(new int[]{0, NO, 1, 2}, diff.newToOld);
+        assertArrayEquals(new int[]{0, 2, 3}, diff.oldToNew);
+        assertEquals(1, diff.firstChanged);
+        assertTrue(diff.stable[2]);
+        assertTrue(diff.stable[3]);
+    }
+
+    @Test
+    public void remove() {
+        TabDiff diff = diff(list("A", "B", "C", "D"), list("A", "C", "D"));
+        assertArrayEquals(new int[]{0, NO, 1, 2}, diff.oldToNew);
+        assertArrayEquals(new int[]{0, 2, 3}, diff.newToOld);
+        assertEquals(1, diff.firstChanged);
+    }
+
+    @Test
+    public void move() {
+        TabDiff diff = diff(list("A", "B", "C", "D"), list("A", "C", "D", "B"));
+        assertArrayEquals(new int[]{0, 2, 3, 1}, diff.newToOld);
+        assertTrue(diff.stable[1]);
+        assertTrue(diff.stable[2]);
+        //B是移动过去的，不在公共子序列里。
+        assertFalse(diff.stable[3]);
+    }
+
+    @Test
+    public void update() {
+        TabDiff diff = diff(list("A", "B", "C"), list("A", "Q", "C"));
+        assertArrayEquals(new int[]{0, 1, 2}, diff.newToOld);
+        assertFalse(diff.stable[1]);
+    }
+
+    @Test
+    public void duplicateTitles() {
+        List<String> oldTitles = list("A", "B", "A", "C", "A");
+        List<String> newTitles = list("A", "A", "B", "C", "A", "A");
+        TabDiff diff = diff(oldTitles, newTitles);
+        //旧的Tab都还在，每个都只用一次，多出来的一个A是新增的。
+        int inserted = 0;
+        for (int j = 0; j < newTitles.size(); j++) {
+            if (diff.newToOld[j] == NO) {
+                inserted++;
+            } else {
+                assertEquals(oldTitles.get(diff.newToOld[j]), newTitles.get(j));
+            }
+        }
+        assertEquals(1, inserted);
+        for (int i = 0; i < oldTitles.size(); i++) {
+            assertTrue(diff.oldToNew[i] != NO);
+        }
+    }
+
+    @Test
+    public void fullReplacement() {
+        TabDiff diff = diff(list("A", "B"), list("X", "Y", "Z"));
+        assertEquals(0, diff.firstChanged);
+        //没有相同的标题，按顺序复用旧的Tab更新文本，多出来的是新增。
+        assertArrayEquals(new int[]{0, 1, NO}, diff.newToOld);
+        assertFalse(diff.stable[0]);
+        assertFalse(diff.stable[1]);
+    }
+
+    @Test
+    public void emptyOld() {
+        TabDiff diff = diff(Collections.<String>emptyList(), list("A", "B"));
+        assertArrayEquals(new int[]{NO, NO}, diff.newToOld);
+        assertEquals(0, diff.oldToNew.length);
+        assertEquals(0, diff.firstChanged);
+    }
+
+    @Test
+    public void emptyNew() {
+        TabDiff diff = diff(list("A", "B"), Collections.<String>emptyList());
+        assertArrayEquals(new int[]{NO, NO}, diff.oldToNew);
+        assertEquals(0, diff.newToOld.length);
+    }
+
+    @Test
+    public void unchanged() {
+        TabDiff diff = diff(list("A", "B", "C"), list("A", "B", "C"));
+        assertArrayEquals(new int[]{0, 1, 2}, diff.newToOld);
+        assertEquals(3, diff.firstChanged);
+    }
+
+    @Test
+    public void mixedChanges() {
+        diff(list("A", "B", "C", "D", "E", "F", "G"), list("G", "B", "X", "D", "A", "F", "Y", "Z"));
+        diff(list("A", "B", "C", "A", "B", "B", "A"), list("C", "B", "A", "B", "A", "C"));
+    }
+
+    /**
+     * 计算差分并检查结果自洽：两个方向的映射互逆，位置不变的Tab标题相同并且保持原来的相对顺序。
+     */
+    private static TabDiff diff(List<String> oldTitles, List<String> newTitles) {
+        TabDiff diff = TabDiff.calculate(oldTitles, newTitles);
+        assertEquals(oldTitles.size(), diff.oldToNew.length);
+        assertEquals(newTitles.size(), diff.newToOld.length);
+        int lastStableOld = -1;
+        for (int j = 0; j < newTitles.size(); j++) {
+            int i = diff.newToOld[j];
+            if (i == NO) {
+                assertFalse(diff.stable[j]);
+                continue;
+            }
+            assertEquals(j, diff.oldToNew[i]);
+            if (diff.stable[j]) {
+                assertEquals(oldTitles.get(i), newTitles.get(j));
+                assertTrue(i > lastStableOld);
+                lastStableOld = i;
+            }
+        }
+        for (int i = 0; i < oldTitles.size(); i++) {
+            int j = diff.oldToNew[i];
+            if (j != NO) {
+                assertEquals(i, diff.newToOld[j]);
+            }
+        }
+        for (int j = 0; j < diff.firstChanged; j++) {
+            assertEquals(j, diff.newToOld[j]);
+        }
+        return diff;
+    }
+
+    private static List<String> list(String... titles) {
+        return Arrays.asList(titles);
+    }
+}
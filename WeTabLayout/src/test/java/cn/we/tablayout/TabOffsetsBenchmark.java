@@ -0,0 +1,65 @@
+package cn.we.tablayout;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * Created to : {@link TabOffsets}在5、50、500个Tab时的耗时和分配，每一帧查找位置都会用到，不能分配对象。
+ */
+public class TabOffsetsBenchmark {
+
+    private static final int[] TAB_COUNTS = {5, 50, 500};
+
+    @Before
+    public void setUp() {
+        Benchmark.assumeEnabled();
+    }
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        Benchmark.writeReport(TabOffsetsBenchmark.class);
+    }
+
+    @Test
+    public void indexAt() {
+        for (int tabCount : TAB_COUNTS) {
+            final TabOffsets offsets = offsets(tabCount);
+            final int total = offsets.getTotalWidth();
+            Benchmark.run("TabOffsets.indexAt", tabCount, new Benchmark.Operation() {
+                @Override
+                public int run(int i) {
+                    return offsets.indexAt((int) (i * 37L % total));
+                }
+            }).assertBytesPerOp(0);
+        }
+    }
+
+    @Test
+    public void getStartAfterWidthChange() {
+        for (int tabCount : TAB_COUNTS) {
+            final TabOffsets offsets = offsets(tabCount);
+            final int count = tabCount;
+            //改一个Tab的宽度之后，后面的前缀和要补算。
+            Benchmark.run("TabOffsets.setWidth", tabCount, new Benchmark.Operation() {
+                @Override
+                public int run(int i) {
+                    int index = i % count;
+                    offsets.setWidth(index, 80 + (i & 15));
+                    return offsets.getStart(count - 1);
+                }
+            }).assertBytesPerOp(0);
+        }
+    }
+
+    private static TabOffsets offsets(int tabCount) {
+        TabOffsets offsets = new TabOffsets();
+        offsets.setCount(tabCount);
+        for (int i = 0; i < tabCount; i++) {
+            offsets.setWidth(i, 80 + i % 7 * 10);
+        }
+        return offsets;
+    }
+}
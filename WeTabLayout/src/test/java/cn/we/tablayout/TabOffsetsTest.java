@@ -0,0 +1,125 @@
+package cn.we.tablayout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created to : {@link TabOffsets}的测试，增删移动之后前缀和要跟逐个累加的结果一致。
+ */
+public class TabOffsetsTest {
+
+    @Test
+    public void prefixSums() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        assertOffsets(offsets, 10, 20, 30);
+        assertEquals(60, offsets.getTotalWidth());
+    }
+
+    @Test
+    public void setWidth() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        assertEquals(30, offsets.getStart(2));
+        offsets.setWidth(0, 15);
+        assertOffsets(offsets, 15, 20, 30);
+    }
+
+    @Test
+    public void insert() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        offsets.insert(1, 5);
+        assertOffsets(offsets, 10, 5, 20, 30);
+        offsets.insert(4, 7);
+        assertOffsets(offsets, 10, 5, 20, 30, 7);
+        offsets.insert(0, 1);
+        assertOffsets(offsets, 1, 10, 5, 20, 30, 7);
+    }
+
+    @Test
+    public void insertGrowsCapacity() {
+        TabOffsets offsets = new TabOffsets();
+        int[] widths = new int[100];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = i + 1;
+            offsets.insert(i, i + 1);
+        }
+        assertOffsets(offsets, widths);
+    }
+
+    @Test
+    public void remove() {
+        TabOffsets offsets = offsets(10, 20, 30, 40);
+        offsets.remove(1);
+        assertOffsets(offsets, 10, 30, 40);
+        offsets.remove(2);
+        assertOffsets(offsets, 10, 30);
+        offsets.remove(0);
+        assertOffsets(offsets, 30);
+    }
+
+    @Test
+    public void move() {
+        TabOffsets offsets = offsets(10, 20, 30, 40);
+        offsets.move(0, 3);
+        assertOffsets(offsets, 20, 30, 40, 10);
+        offsets.move(3, 1);
+        assertOffsets(offsets, 20, 10, 30, 40);
+    }
+
+    @Test
+    public void setCount() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        offsets.setCount(2);
+        assertOffsets(offsets, 10, 20);
+        offsets.setCount(4);
+        assertOffsets(offsets, 10, 20, 0, 0);
+    }
+
+    @Test
+    public void indexAt() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        assertEquals(0, offsets.indexAt(-5));
+        assertEquals(0, offsets.indexAt(0));
+        assertEquals(0, offsets.indexAt(9));
+        assertEquals(1, offsets.indexAt(10));
+        assertEquals(1, offsets.indexAt(29));
+        assertEquals(2, offsets.indexAt(30));
+        assertEquals(2, offsets.indexAt(100));
+        assertEquals(-1, new TabOffsets().indexAt(0));
+    }
+
+    @Test
+    public void indexAtAfterChanges() {
+        TabOffsets offsets = offsets(10, 20, 30);
+        assertEquals(2, offsets.indexAt(35));
+        offsets.insert(0, 50);
+        assertEquals(0, offsets.indexAt(35));
+        assertEquals(2, offsets.indexAt(65));
+        offsets.remove(0);
+        assertEquals(2, offsets.indexAt(35));
+    }
+
+    private static TabOffsets offsets(int... widths) {
+        TabOffsets offsets = new TabOffsets();
+        offsets.setCount(widths.length);
+        for (int i = 0; i < widths.length; i++) {
+            offsets.setWidth(i, widths[i]);
+        }
+        return offsets;
+    }
+
+    /**
+     * 检查数量、每个Tab的宽度以及左右边界。
+     */
+    private static void assertOffsets(TabOffsets offsets, int... widths) {
+        assertEquals(widths.length, offsets.getCount());
+        int start = 0;
+        for (int i = 0; i < widths.length; i++) {
+            assertEquals(widths[i], offsets.getWidth(i));
+            assertEquals(start, offsets.getStart(i));
+            start += widths[i];
+            assertEquals(start, offsets.getEnd(i));
+        }
+        assertEquals(start, offsets.getTotalWidth());
+    }
+}
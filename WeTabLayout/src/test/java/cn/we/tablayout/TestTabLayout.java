@@ -0,0 +1,189 @@
+package cn.we.tablayout;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Created to : 测试用的WeTabLayout。Robolectric的ShadowDrawable.invalidateSelf、ShadowView.scrollTo、
+ * 放到窗口之后的postOnAnimation、invalidate和缩放过的View刷新（ShadowRenderNode.getMatrix）每次调用都会创建对象，真机上不会：
+ * 下划线换成不经过ShadowDrawable的{@link FrameDrawable}，其余几处框架分配的字节单独统计出来，由调用方扣掉，
+ * 其中WeTabLayout自己的onScrollChanged不算框架的。postOnAnimation的回调也包一层，只统计回调本身，不算Looper的分配。
+ */
+class TestTabLayout extends WeTabLayout {
+
+    long mScrollCount;
+
+    /**
+     * scrollTo里框架自己分配的字节，不包括onScrollChanged。
+     */
+    long mScrollBytes;
+
+    /**
+     * 除scrollTo以外框架分配的字节：postOnAnimation、invalidate，以及setTextScale里的setScaleX、setScaleY。
+     */
+    long mFrameworkBytes;
+
+    /**
+     * 执行了几次postOnAnimation的回调，以及回调里分配的字节（包括其中的{@link #mScrollBytes}）。
+     */
+    long mFrameCount;
+    long mFrameBytes;
+
+    private long mScrollChangedBytes;
+
+    private Runnable mFrameAction;
+
+    private final Runnable mMeteredFrame = new Runnable() {
+        @Override
+        public void run() {
+            Runnable action = mFrameAction;
+            mFrameAction = null;
+            long start = Allocations.allocatedBytes();
+            long startReads = Allocations.reads();
+            action.run();
+            mFrameBytes += Allocations.bytesSince(start, startReads);
+            mFrameCount++;
+        }
+    };
+
+    private TestTabLayout() {
+        super(RuntimeEnvironment.application);
+    }
+
+    /**
+     * @param drawn     自绘文本模式。
+     * @param textScale 选中文字用缩放。
+     */
+    static TestTabLayout create(int tabCount, boolean drawn, boolean textScale) {
+        TestTabLayout layout = new TestTabLayout();
+        layout.setHorizontalScrollBarEnabled(false);
+        layout.setTabStyle(layout.getTabStyle().newBuilder(RuntimeEnvironment.application)
+                .setIndicatorDrawable(new FrameDrawable())
+                .setTabPadding(20, 0, 20, 0)
+                .build());
+        //setTabStyle会用样式里的模式覆盖，模式要在它之后、添加Tab之前设置。
+        layout.setTabTextDrawn(drawn);
+        layout.setSelectedTextScale(textScale);
+        for (int i = 0; i < tabCount; i++) {
+            layout.addTab(layout.newTab().setText("Tab " + i));
+        }
+        return layout;
+    }
+
+    void layoutAt(int width, int height) {
+        measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        layout(0, 0, width, height);
+    }
+
+    void resetMeters() {
+        mScrollCount = 0;
+        mScrollBytes = 0;
+        mFrameworkBytes = 0;
+        mFrameCount = 0;
+        mFrameBytes = 0;
+    }
+
+    @Override
+    public void scrollTo(int x, int y) {
+        mScrollChangedBytes = 0;
+        long start = Allocations.allocatedBytes();
+        long startReads = Allocations.reads();
+        super.scrollTo(x, y);
+        mScrollBytes += Allocations.bytesSince(start, startReads) - mScrollChangedBytes;
+        mScrollCount++;
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        long start = Allocations.allocatedBytes();
+        long startReads = Allocations.reads();
+        super.onScrollChanged(l, t, oldl, oldt);
+        mScrollChangedBytes += Allocations.bytesSince(start, startReads);
+    }
+
+    @Override
+    public void postOnAnimation(Runnable action) {
+        if (null != mFrameAction && mFrameAction != action) {
+            //已经有别的回调在等，不再统计。
+            super.postOnAnimation(action);
+            return;
+        }
+        mFrameAction = action;
+        long start = Allocations.allocatedBytes();
+        long startReads = Allocations.reads();
+        super.postOnAnimation(mMeteredFrame);
+        mFrameworkBytes += Allocations.bytesSince(start, startReads);
+    }
+
+    @Override
+    public void invalidate() {
+        long start = Allocations.allocatedBytes();
+        long startReads = Allocations.reads();
+        super.invalidate();
+        mFrameworkBytes += Allocations.bytesSince(start, startReads);
+    }
+
+    @Override
+    void setTextScale(View view, float scale) {
+        long start = Allocations.allocatedBytes();
+        long startReads = Allocations.reads();
+        super.setTextScale(view, scale);
+        mFrameworkBytes += Allocations.bytesSince(start, startReads);
+    }
+
+    /**
+     * 画一个矩形的下划线。
+     */
+    private static class FrameDrawable extends Drawable {
+
+        private final Paint mPaint = new Paint();
+
+        @Override
+        public void draw(Canvas canvas) {
+            canvas.drawRect(getBounds(), mPaint);
+        }
+
+        @Override
+        public void invalidateSelf() {
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+            mPaint.setAlpha(alpha);
+        }
+
+        @Override
+        public void setColorFilter(ColorFilter colorFilter) {
+            mPaint.setColorFilter(colorFilter);
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.OPAQUE;
+        }
+
+        @Override
+        public ConstantState getConstantState() {
+            return STATE;
+        }
+
+        private static final ConstantState STATE = new ConstantState() {
+            @Override
+            public Drawable newDrawable() {
+                return new FrameDrawable();
+            }
+
+            @Override
+            public int getChangingConfigurations() {
+                return 0;
+            }
+        };
+    }
+}
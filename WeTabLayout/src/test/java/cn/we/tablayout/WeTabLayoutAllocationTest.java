@@ -0,0 +1,116 @@
+package cn.we.tablayout;
+
+import android.app.Activity;
+import android.graphics.Canvas;
+import android.view.ViewGroup;
+
+import androidx.viewpager.widget.ViewPager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created to : 滑动时每一帧要走的路径（onPageScrolled、postOnAnimation的回调、onDraw）不能分配对象。
+ * TabLayout放在Activity里，帧由主线程Looper按16ms推进，跟真机一样由Choreographer执行滚动。
+ * 分配的字节数用当前线程的{@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}统计，
+ * 只统计上面三段，Looper和测试环境自己的分配见{@link TestTabLayout}。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class WeTabLayoutAllocationTest {
+
+    private static final int TAB_COUNT = 20;
+    private static final int FRAMES_PER_PAGE = 30;
+    private static final long FRAME_MILLIS = 16;
+    private static final int WARM_UP_FRAMES = 5000;
+    private static final int FRAMES = 2000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void tabViewMode() {
+        assertNoAllocation(TestTabLayout.create(TAB_COUNT, false, false));
+    }
+
+    @Test
+    public void textScaleMode() {
+        assertNoAllocation(TestTabLayout.create(TAB_COUNT, false, true));
+    }
+
+    @Test
+    public void drawnMode() {
+        assertNoAllocation(TestTabLayout.create(TAB_COUNT, true, false));
+    }
+
+    private static void assertNoAllocation(TestTabLayout layout) {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        //比所有Tab加起来窄，滑动的时候会跟着滚动。
+        activity.setContentView(layout, new ViewGroup.LayoutParams(200, 120));
+        ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+        assertTrue(layout.getChildAt(0).getWidth() > layout.getWidth());
+        layout.onPageScrollStateChanged(ViewPager.SCROLL_STATE_DRAGGING);
+        FrameMeter meter = new FrameMeter(layout);
+
+        meter.runFrames(WARM_UP_FRAMES);
+        Allocations.calibrate();
+        //JIT和测试环境偶尔会在某一轮里分配一点，取几轮里最少的；每一帧都分配的话每一轮都不会是0。
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS && allocated > 0; round++) {
+            layout.resetMeters();
+            meter.mBytes = 0;
+            meter.runFrames(FRAMES);
+            //同一帧里的两次onPageScrolled只post一次回调。
+            assertEquals(FRAMES, layout.mFrameCount);
+            //确认这些帧里确实滚动了。
+            assertTrue(layout.mScrollCount > 0);
+            allocated = Math.min(allocated, meter.mBytes + layout.mFrameBytes
+                    - layout.mScrollBytes - layout.mFrameworkBytes);
+        }
+        assertEquals("bytes allocated in " + FRAMES + " frames", 0, allocated);
+    }
+
+    /**
+     * 模拟ViewPager从第一页一直拖到最后一页，每一帧回调两次onPageScrolled，然后让Looper走一帧，再绘制。
+     */
+    private static final class FrameMeter {
+
+        private final TestTabLayout mLayout;
+        private final Canvas mCanvas = new NoOpCanvas();
+
+        /**
+         * onPageScrolled和onDraw里分配的字节。
+         */
+        long mBytes;
+
+        FrameMeter(TestTabLayout layout) {
+            mLayout = layout;
+        }
+
+        void runFrames(int frames) {
+            for (int i = 0; i < frames; i++) {
+                int position = (i / FRAMES_PER_PAGE) % (TAB_COUNT - 1);
+                float offset = (i % FRAMES_PER_PAGE) / (float) FRAMES_PER_PAGE;
+                long start = Allocations.allocatedBytes();
+                long startReads = Allocations.reads();
+                mLayout.onPageScrolled(position, offset * 0.5f, 0);
+                mLayout.onPageScrolled(position, offset, 0);
+                mBytes += Allocations.bytesSince(start, startReads);
+
+                ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+
+                start = Allocations.allocatedBytes();
+                startReads = Allocations.reads();
+                mLayout.onDraw(mCanvas);
+                mBytes += Allocations.bytesSince(start, startReads);
+            }
+        }
+    }
+}
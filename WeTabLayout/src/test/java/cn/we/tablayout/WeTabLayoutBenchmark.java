@@ -0,0 +1,194 @@
+package cn.we.tablayout;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.TypedValue;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.viewpager.widget.ViewPager;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+
+/**
+ * Created to : WeTabLayout主要路径在5、50、500个Tab时的耗时和分配，结果写到报告里，升级之前可以对比。
+ * 滑动时每一帧都会走的路径不允许分配对象，其他路径不能超过预算。耗时受机器影响，只记录不检查。
+ * 默认不运行，见{@link Benchmark}。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class WeTabLayoutBenchmark {
+
+    private static final int[] TAB_COUNTS = {5, 50, 500};
+    private static final int FRAMES_PER_PAGE = 30;
+
+    /**
+     * 选中一个Tab只更新前后两个Tab的样式，分配和Tab的数量无关。
+     */
+    private static final double SELECTED_TAB_BUDGET = 1024;
+
+    /**
+     * 创建TabView的分配和直接创建同样数量的LinearLayout+TextView相比的上限。测试环境里View本身的分配占了绝大部分，
+     * 实测是参照的0.71到1.0001倍，超过1.05倍说明WeTabLayout自己在创建Tab时多分配了。
+     */
+    private static final double CREATE_TABS_BUDGET_RATIO = 1.05;
+
+    @Before
+    public void setUp() {
+        Benchmark.assumeEnabled();
+    }
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        Benchmark.writeReport(WeTabLayoutBenchmark.class);
+    }
+
+    @Test
+    public void computeIndicatorRect() {
+        for (int tabCount : TAB_COUNTS) {
+            final TestTabLayout layout = layout(tabCount, false);
+            final int pages = tabCount - 1;
+            Benchmark.run("computeIndicatorRect", tabCount, layout, new Benchmark.Operation() {
+                @Override
+                public int run(int i) {
+                    scrollTo(layout, pages, i);
+                    layout.computeIndicatorRect();
+                    return 0;
+                }
+            }).assertBytesPerOp(0);
+        }
+    }
+
+    @Test
+    public void scrollToCurrentTab() {
+        for (int tabCount : TAB_COUNTS) {
+            final TestTabLayout layout = layout(tabCount, false);
+            final int pages = tabCount - 1;
+            Benchmark.run("scrollToCurrentTab", tabCount, layout, new Benchmark.Operation() {
+                @Override
+                public int run(int i) {
+                    scrollTo(layout, pages, i);
+                    layout.scrollToCurrentTab();
+                    return layout.getScrollX();
+                }
+            }).assertBytesPerOp(0);
+        }
+    }
+
+    @Test
+    public void frame() {
+        runFrames("frame", false);
+    }
+
+    @Test
+    public void drawnFrame() {
+        runFrames("frame (drawn)", true);
+    }
+
+    @Test
+    public void selectedTab() {
+        for (int tabCount : TAB_COUNTS) {
+            final TestTabLayout layout = layout(tabCount, false);
+            final int count = tabCount;
+            //通过onPageSelected选中，上一个Tab会恢复默认样式；拖动中选中不会居中滚动。
+            Benchmark.run("selectedTab", tabCount, layout, new Benchmark.Operation() {
+                @Override
+                public int run(int i) {
+                    layout.onPageSelected(i % count);
+                    return 0;
+                }
+            }).assertBytesPerOp(SELECTED_TAB_BUDGET);
+        }
+    }
+
+    @Test
+    public void createTabs() {
+        for (int tabCount : TAB_COUNTS) {
+            final TestTabLayout layout = layout(tabCount, false);
+            final ViewGroup container = (ViewGroup) layout.getChildAt(0);
+            Benchmark.Result baseline = createViews(tabCount);
+            Benchmark.run("createTabs", tabCount, layout, new Benchmark.Operation() {
+                @Override
+                public int run(int i) {
+                    container.removeAllViews();
+                    layout.createTabs();
+                    return container.getChildCount();
+                }
+            }).assertBytesPerOp(baseline, CREATE_TABS_BUDGET_RATIO);
+        }
+    }
+
+    /**
+     * 参照：直接创建和TabView一样的LinearLayout+TextView并设置同样的属性。
+     */
+    private static Benchmark.Result createViews(final int tabCount) {
+        final Context context = RuntimeEnvironment.application;
+        final LinearLayout container = new LinearLayout(context);
+        return Benchmark.run("createTabs (views)", tabCount, new Benchmark.Operation() {
+            @Override
+            public int run(int i) {
+                container.removeAllViews();
+                for (int n = 0; n < tabCount; n++) {
+                    LinearLayout tabView = new LinearLayout(context);
+                    TextView textView = new TextView(context);
+                    tabView.addView(textView);
+                    textView.setPadding(20, 0, 20, 0);
+                    textView.setText("Tab " + n);
+                    textView.setTextColor(0xff000000);
+                    textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, 30);
+                    container.addView(tabView, new LinearLayout.LayoutParams(
+                            ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT));
+                }
+                return container.getChildCount();
+            }
+        });
+    }
+
+    /**
+     * 完整的一帧：onPageScrolled、applyScrollFrame、onDraw。
+     */
+    private static void runFrames(String name, boolean drawn) {
+        for (int tabCount : TAB_COUNTS) {
+            final TestTabLayout layout = layout(tabCount, drawn);
+            final Canvas canvas = new NoOpCanvas();
+            final int pages = tabCount - 1;
+            Benchmark.run(name, tabCount, layout, new Benchmark.Operation() {
+                @Override
+                public int run(int i) {
+                    scrollTo(layout, pages, i);
+                    layout.applyScrollFrame();
+                    layout.onDraw(canvas);
+                    return 0;
+                }
+            }).assertBytesPerOp(0);
+        }
+    }
+
+    /**
+     * 比所有Tab加起来窄，滑动的时候会跟着滚动。
+     */
+    private static TestTabLayout layout(int tabCount, boolean drawn) {
+        TestTabLayout layout = TestTabLayout.create(tabCount, drawn, false);
+        layout.layoutAt(200, 120);
+        layout.onPageScrollStateChanged(ViewPager.SCROLL_STATE_DRAGGING);
+        return layout;
+    }
+
+    /**
+     * 模拟ViewPager从第一页一直拖到最后一页。
+     */
+    private static void scrollTo(WeTabLayout layout, int pages, int frame) {
+        int position = (frame / FRAMES_PER_PAGE) % pages;
+        float offset = (frame % FRAMES_PER_PAGE) / (float) FRAMES_PER_PAGE;
+        layout.onPageScrolled(position, offset, 0);
+    }
+}
@@ -0,0 +1,98 @@
+package cn.we.tablayout;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created to : 自绘文本模式下，绘制的位置和{@link WeTabLayout#getTabIndexAt(int)}、{@link WeTabLayout#getTabBounds(int, Rect)}要一致。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class WeTabLayoutDrawnTest {
+
+    private static final int TAB_COUNT = 8;
+
+    @Test
+    public void paddedLayoutHitsDrawnText() {
+        TestTabLayout layout = TestTabLayout.create(TAB_COUNT, true, false);
+        //比Tab左右的padding大，坐标系不一致的话会命中相邻的Tab。
+        layout.setPadding(30, 10, 30, 0);
+        layout.layoutAt(200, 120);
+        layout.scrollTo(40, 0);
+
+        TextRecordingCanvas canvas = new TextRecordingCanvas();
+        layout.onDraw(canvas);
+        assertTrue(canvas.mTexts.size() > 1);
+        Rect bounds = new Rect();
+        for (int i = 0; i < canvas.mTexts.size(); i++) {
+            String text = canvas.mTexts.get(i);
+            int position = Integer.parseInt(text.substring("Tab ".length()));
+            //onDraw的坐标包含了滚动距离，getTabIndexAt的不包含。
+            int left = (int) canvas.mLefts.get(i).floatValue() - layout.getScrollX();
+            int right = (int) canvas.mRights.get(i).floatValue() - layout.getScrollX();
+            assertEquals(text, position, layout.getTabIndexAt(left + 1));
+            assertEquals(text, position, layout.getTabIndexAt(right - 1));
+            assertTrue(layout.getTabBounds(position, bounds));
+            assertTrue(text, bounds.left <= left && right <= bounds.right);
+        }
+    }
+
+    /**
+     * 记录每段文本绘制时的左右边界。
+     */
+    private static class TextRecordingCanvas extends NoOpCanvas {
+
+        final List<String> mTexts = new ArrayList<>();
+        final List<Float> mLefts = new ArrayList<>();
+        final List<Float> mRights = new ArrayList<>();
+
+        private final List<float[]> mSaved = new ArrayList<>();
+        private float mTranslateX;
+        private float mTranslateY;
+
+        @Override
+        public int save() {
+            mSaved.add(new float[]{mTranslateX, mTranslateY});
+            return mSaved.size();
+        }
+
+        @Override
+        public void restore() {
+            restoreToCount(mSaved.size());
+        }
+
+        @Override
+        public void restoreToCount(int saveCount) {
+            while (mSaved.size() >= saveCount && !mSaved.isEmpty()) {
+                float[] saved = mSaved.remove(mSaved.size() - 1);
+                mTranslateX = saved[0];
+                mTranslateY = saved[1];
+            }
+        }
+
+        @Override
+        public void translate(float dx, float dy) {
+            mTranslateX += dx;
+            mTranslateY += dy;
+        }
+
+        @Override
+        public void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
+            float left = mTranslateX + x;
+            mTexts.add(text.subSequence(start, end).toString());
+            mLefts.add(left);
+            mRights.add(left + paint.measureText(text, start, end));
+        }
+    }
+}
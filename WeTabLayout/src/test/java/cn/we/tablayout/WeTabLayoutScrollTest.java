@@ -0,0 +1,55 @@
+package cn.we.tablayout;
+
+import android.os.SystemClock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created to : 选中Tab之后滚动到让它居中的位置。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class WeTabLayoutScrollTest {
+
+    private static final int TAB_COUNT = 20;
+
+    @Test
+    public void centersAgainAfterUserScroll() {
+        TestTabLayout layout = TestTabLayout.create(TAB_COUNT, false, false);
+        layout.layoutAt(200, 120);
+        int maxScrollX = layout.getChildAt(0).getWidth() - layout.getWidth();
+        assertTrue(maxScrollX > 0);
+
+        //最后一个Tab居中的位置被限制在最右边。
+        selectAndSettle(layout, TAB_COUNT - 1);
+        assertEquals(maxScrollX, layout.getScrollX());
+
+        //用户把Tab栏滑回了最左边。
+        layout.scrollTo(0, 0);
+        SystemClock.sleep(1000);
+
+        //倒数第二个Tab居中的位置同样被限制在最右边，要重新滚过去。
+        selectAndSettle(layout, TAB_COUNT - 2);
+        assertEquals(maxScrollX, layout.getScrollX());
+    }
+
+    private static void selectAndSettle(TestTabLayout layout, int position) {
+        layout.onPageSelected(position);
+        layout.applyScrollFrame();
+        settle(layout);
+    }
+
+    /**
+     * 没有attach到窗口不会绘制，手动推进smoothScrollTo的动画。
+     */
+    private static void settle(TestTabLayout layout) {
+        SystemClock.sleep(1000);
+        layout.computeScroll();
+    }
+}